@@ -0,0 +1,276 @@
+package inf.ed.cw_ilp.api;
+
+import inf.ed.cw_ilp.model.Regions.Position;
+import inf.ed.cw_ilp.model.pathFinder.Airspace;
+import inf.ed.cw_ilp.model.pathFinder.DistanceField;
+import inf.ed.cw_ilp.model.pathFinder.LifelongPlanningAStar;
+import inf.ed.cw_ilp.model.pathFinder.PathFinder;
+import inf.ed.cw_ilp.model.pathFinder.SearchAbortedException;
+import inf.ed.cw_ilp.model.pathFinder.SearchBudget;
+import inf.ed.cw_ilp.model.pathFinder.SearchMode;
+import inf.ed.cw_ilp.model.pathFinder.nameData;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static inf.ed.cw_ilp.utils.Constants.APPLETON_TOWER;
+
+/**
+ * DeliveryPathService hands out delivery paths from a restaurant to Appleton Tower.
+ * The goal never changes and there are only a handful of restaurants, so paths are cached
+ * per restaurant location, airspace version and search mode. The cache is filled in the background at
+ * startup and again whenever the region data changes, so a valid order is normally served by a lookup.
+ * Searches that do run are limited by a SearchBudget built from drone.path.max-expansions and drone.path.timeout-ms.
+ * With drone.path.incremental (off by default), ASTAR paths come from one LifelongPlanningAStar per restaurant
+ * instead of a fresh A* search, so a change to the region data only re-searches the part of each search it affects.
+ * At most MAX_PLANNERS planners are kept, and only for the restaurants the region data lists.
+ */
+@Service
+public class DeliveryPathService {
+
+    private static final Logger log = LoggerFactory.getLogger(DeliveryPathService.class);
+
+    private record CacheKey(Position restaurant, long airspaceVersion, SearchMode mode) {}
+
+    // Planners are only kept for this many restaurants; past that a request gets a one-off LPA* search
+    private static final int MAX_PLANNERS = 64;
+
+    // Budget for refining an anytime path in the background once a quick one has been served
+    private static final Duration REFINE_BUDGET = Duration.ofSeconds(30);
+
+    /**
+     * A delivery path and how many times longer than the shortest path it can be.
+     * The bound is NaN when the path did not come from a search that can tell (the distance field).
+     */
+    public record DeliveryPath(List<Position> positions, double suboptimalityBound) {
+
+        public boolean isEmpty() {
+            return positions.isEmpty();
+        }
+    }
+
+    private final DynamicDataService dds;
+    private final boolean useDistanceField;
+    private final boolean incremental;
+    private final SearchMode defaultMode;
+    private final Duration defaultTimeBudget;
+    private final long maxExpansions;
+    private final Duration searchTimeout;
+    private final Map<CacheKey, DeliveryPath> cache = new ConcurrentHashMap<>();
+    private final Map<Position, LifelongPlanningAStar> planners = new ConcurrentHashMap<>();
+    private final ExecutorService warmer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "delivery-path-warmer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Request searches run here, so a slow one holds a pool thread instead of a Tomcat one
+    private final ExecutorService searches = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+        Thread thread = new Thread(runnable, "delivery-path-search");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public DeliveryPathService(DynamicDataService dds,
+                               @Value("${drone.path.distance-field:false}") boolean useDistanceField,
+                               @Value("${drone.path.mode:ASTAR}") SearchMode defaultMode,
+                               @Value("${drone.path.anytime-budget-ms:200}") long defaultTimeBudgetMs,
+                               @Value("${drone.path.max-expansions:1000000}") long maxExpansions,
+                               @Value("${drone.path.timeout-ms:5000}") long searchTimeoutMs,
+                               @Value("${drone.path.incremental:false}") boolean incremental) {
+        this.dds = dds;
+        this.useDistanceField = useDistanceField;
+        this.incremental = incremental;
+        this.defaultMode = defaultMode;
+        this.defaultTimeBudget = Duration.ofMillis(defaultTimeBudgetMs);
+        this.maxExpansions = maxExpansions;
+        this.searchTimeout = Duration.ofMillis(searchTimeoutMs);
+    }
+
+    // A fresh budget with the configured limits, whose clock starts now
+    public SearchBudget newBudget() {
+        return new SearchBudget(maxExpansions, searchTimeout);
+    }
+
+    // The same, but also cancelled when the parent is; for one search among many serving a long request
+    public SearchBudget newBudget(SearchBudget parent) {
+        return parent.child(maxExpansions, searchTimeout);
+    }
+
+    // Runs request work on the search pool
+    public void execute(Runnable task) {
+        searches.execute(task);
+    }
+
+    // Path from the restaurant to Appleton Tower using the configured search, empty if there is none
+    public DeliveryPath pathFor(Position restaurant, Airspace airspace) {
+        return pathFor(restaurant, airspace, null, null, newBudget());
+    }
+
+    /**
+     * A null mode or time budget falls back to the configured one.
+     * Throws SearchAbortedException if the search runs out of budget; nothing is cached then.
+     */
+    public DeliveryPath pathFor(Position restaurant, Airspace airspace, SearchMode mode, Duration timeBudget,
+                                SearchBudget budget) {
+        SearchMode searchMode = mode == null ? defaultMode : mode;
+        CacheKey key = new CacheKey(restaurant, airspace.version(), searchMode);
+        DeliveryPath path = cache.get(key);
+        if (path == null) {
+            // Computed outside the map so a long search doesn't block other lookups
+            path = computePath(restaurant, airspace, searchMode, timeBudget == null ? defaultTimeBudget : timeBudget, budget);
+            DeliveryPath raced = cache.putIfAbsent(key, path);
+            if (raced != null) {
+                path = raced;
+            } else if (path.suboptimalityBound() > 1) {
+                // The quick path is served now; later requests get the tightened one
+                warmer.submit(() -> refine(key, restaurant, airspace));
+            }
+        }
+        return path;
+    }
+
+    // The path already cached for this restaurant, airspace and search, or null; never searches
+    public DeliveryPath cachedPath(Position restaurant, Airspace airspace, SearchMode mode) {
+        return cache.get(new CacheKey(restaurant, airspace.version(), mode == null ? defaultMode : mode));
+    }
+
+    /**
+     * Strong entity tag for a delivery path response, taken from the path itself. Equal-cost paths can differ
+     * between runs (parallel searches race, LifelongPlanningAStar breaks ties by its history, anytime paths are
+     * tightened later), so the tag hashes the positions sent rather than the inputs of the search. Together with
+     * the restaurant, the region data version and the representation of the body (such as "json-POSITIONS" or
+     * "geojson"), which the binary form embeds, that fixes the bytes sent.
+     */
+    public String etagFor(nameData.Restaurant restaurant, Airspace airspace, DeliveryPath path, String representation) {
+        // FNV-style, like Airspace.versionOf
+        long hash = 0xCBF29CE484222325L;
+        hash = (hash ^ (restaurant.getName() == null ? 0 : restaurant.getName().hashCode())) * 0x100000001B3L;
+        hash = (hash ^ Double.doubleToLongBits(restaurant.getLocation().lng())) * 0x100000001B3L;
+        hash = (hash ^ Double.doubleToLongBits(restaurant.getLocation().lat())) * 0x100000001B3L;
+        long pathHash = 0xCBF29CE484222325L;
+        for (Position position : path.positions()) {
+            pathHash = (pathHash ^ Double.doubleToLongBits(position.lng())) * 0x100000001B3L;
+            pathHash = (pathHash ^ Double.doubleToLongBits(position.lat())) * 0x100000001B3L;
+        }
+        return "\"" + Long.toHexString(hash) + "-" + Long.toHexString(airspace.version()) + "-"
+                + Long.toHexString(pathHash) + "-" + representation + "\"";
+    }
+
+    private DeliveryPath computePath(Position restaurant, Airspace airspace, SearchMode mode, Duration timeBudget,
+                                     SearchBudget budget) {
+        // In distance-field mode an A* path is read off the flood from Appleton Tower once that has been built;
+        // a request for another search still gets that search, as the path is cached under its mode
+        DistanceField field = useDistanceField && mode == SearchMode.ASTAR
+                ? airspace.derivedIfBuilt(DistanceField.class) : null;
+        if (field != null) {
+            List<Position> path = field.pathFrom(restaurant);
+            if (!path.isEmpty()) {
+                return new DeliveryPath(List.copyOf(path), Double.NaN);
+            }
+        }
+        if (incremental && mode == SearchMode.ASTAR) {
+            return new DeliveryPath(List.copyOf(replan(restaurant, airspace, budget)), 1);
+        }
+        PathFinder finder = mode.create(restaurant, APPLETON_TOWER, airspace, timeBudget, budget);
+        List<Position> path = finder.calculatePath();
+        return new DeliveryPath(List.copyOf(path), finder.suboptimalityBound());
+    }
+
+    // Searches again with REFINE_BUDGET, under a search budget of the same length rather than the request timeout
+    private void refine(CacheKey key, Position restaurant, Airspace airspace) {
+        try {
+            DeliveryPath refined = computePath(restaurant, airspace, key.mode(), REFINE_BUDGET,
+                    new SearchBudget(maxExpansions, REFINE_BUDGET));
+            cache.replace(key, refined);
+        } catch (RuntimeException e) {
+            log.warn("Could not refine the delivery path from {}: {}", restaurant, e.getMessage());
+        }
+    }
+
+    // Brings the restaurant's planner up to this airspace; the first call for a restaurant is a full search
+    private List<Position> replan(Position restaurant, Airspace airspace, SearchBudget budget) {
+        LifelongPlanningAStar planner = planners.get(restaurant);
+        if (planner == null && planners.size() >= MAX_PLANNERS) {
+            return new LifelongPlanningAStar(restaurant, APPLETON_TOWER, airspace, budget).calculatePath();
+        }
+        planner = planners.computeIfAbsent(restaurant,
+                location -> new LifelongPlanningAStar(location, APPLETON_TOWER, airspace, budget));
+        synchronized (planner) {
+            try {
+                return planner.replan(airspace, budget);
+            } catch (SearchAbortedException e) {
+                // A search that gave up has grown without finding anything; start afresh next time
+                planners.remove(restaurant, planner);
+                throw e;
+            }
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmOnStartup() {
+        warmer.submit(() -> {
+            try {
+                Airspace airspace = dds.fetchAirspace();
+                if (airspace != null) {
+                    warm(airspace);
+                }
+            } catch (RuntimeException e) {
+                log.warn("Could not fetch the airspace at startup: {}", e.getMessage());
+            }
+        });
+    }
+
+    // DynamicDataService publishes the new Airspace whenever the region data changes
+    @EventListener
+    public void onAirspaceRefresh(Airspace airspace) {
+        warmer.submit(() -> warm(airspace));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        warmer.shutdownNow();
+        searches.shutdownNow();
+    }
+
+    private void warm(Airspace airspace) {
+        try {
+            // Paths for older region data can never be served again
+            cache.keySet().removeIf(key -> key.airspaceVersion() != airspace.version());
+
+            long started = System.nanoTime();
+            if (useDistanceField) {
+                DistanceField.forAirspace(airspace);
+                log.info("Built distance field from Appleton Tower in {} ms", (System.nanoTime() - started) / 1_000_000);
+            }
+            started = System.nanoTime();
+            defaultMode.prepare(airspace);
+            log.info("Prepared {} search in {} ms", defaultMode, (System.nanoTime() - started) / 1_000_000);
+
+            List<nameData.Restaurant> restaurants = dds.fetchRestaurants();
+            planners.keySet().retainAll(restaurants.stream().map(nameData.Restaurant::getLocation).toList());
+            started = System.nanoTime();
+            for (nameData.Restaurant restaurant : restaurants) {
+                try {
+                    pathFor(restaurant.getLocation(), airspace);
+                } catch (SearchAbortedException e) {
+                    // One unreachable restaurant shouldn't stop the others being cached
+                    log.warn("No delivery path cached for {}: {}", restaurant.getName(), e.getMessage());
+                }
+            }
+            log.info("Cached delivery paths for {} restaurants in {} ms", restaurants.size(), (System.nanoTime() - started) / 1_000_000);
+        } catch (RuntimeException e) {
+            log.warn("Could not pre-compute delivery paths: {}", e.getMessage());
+        }
+    }
+}
@@ -1,8 +1,10 @@
 package inf.ed.cw_ilp.api;
 import inf.ed.cw_ilp.controller.PizzaDroneController;
+import inf.ed.cw_ilp.model.pathFinder.Airspace;
 import inf.ed.cw_ilp.model.pathFinder.nameData;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import java.util.List;
@@ -11,10 +13,15 @@ import java.util.List;
 public class DynamicDataService {
 
     private final WebClient webClient;
+    private final ApplicationEventPublisher events;
     private static final Logger log = LoggerFactory.getLogger(DynamicDataService.class);
 
-    public DynamicDataService(WebClient.Builder webClientBuilder) {
+    // Last compiled airspace, reused until the upstream region data changes
+    private volatile Airspace airspace;
+
+    public DynamicDataService(WebClient.Builder webClientBuilder, ApplicationEventPublisher events) {
         this.webClient = webClientBuilder.baseUrl("https://ilp-rest-2024.azurewebsites.net/").build();
+        this.events = events;
     }
     // no-fly zone
     public List<nameData.NamedRegion> fetchNoFlyZones() {
@@ -44,4 +51,23 @@ public class DynamicDataService {
                 .collectList()
                 .block();
     }
+
+    // central area + no-fly zones compiled for the path searches, recompiled only when the data changes
+    public Airspace fetchAirspace() {
+        nameData.NamedRegion centralArea = fetchCentralArea();
+        List<nameData.NamedRegion> noFlyZones = fetchNoFlyZones();
+        if (centralArea == null || centralArea.getCoordinates() == null || noFlyZones == null) {
+            return null;
+        }
+
+        long version = Airspace.versionOf(centralArea, noFlyZones);
+        Airspace current = airspace;
+        if (current == null || current.version() != version) {
+            current = Airspace.compile(centralArea, noFlyZones);
+            airspace = current;
+            log.info("Compiled airspace version {} with {} no-fly zones", Long.toHexString(version), noFlyZones.size());
+            events.publishEvent(current);
+        }
+        return current;
+    }
 }
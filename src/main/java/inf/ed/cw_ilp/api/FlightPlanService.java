@@ -0,0 +1,174 @@
+package inf.ed.cw_ilp.api;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import inf.ed.cw_ilp.model.Regions.Position;
+import inf.ed.cw_ilp.model.orderRelated.DeliveryPathResult;
+import inf.ed.cw_ilp.model.orderRelated.Order;
+import inf.ed.cw_ilp.model.orderRelated.OrderValidationResult;
+import inf.ed.cw_ilp.model.orderRelated.Orderstats;
+import inf.ed.cw_ilp.model.pathFinder.Airspace;
+import inf.ed.cw_ilp.model.pathFinder.SearchAbortedException;
+import inf.ed.cw_ilp.model.pathFinder.SearchBudget;
+import inf.ed.cw_ilp.model.pathFinder.nameData;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * FlightPlanService plans a whole day of deliveries: for every order, the round trip from Appleton Tower to the
+ * restaurant and back. The orders are read one at a time from the request body and each plan is handed on as soon
+ * as it is done, so at most a fixed number of orders and plans are held at once however long the day is.
+ * Plans are computed in parallel on DeliveryPathService's search pool and handed back to the thread reading the
+ * orders, which writes them out, so a slow client never holds a search thread. They come out in completion order;
+ * every plan carries its order number.
+ */
+@Service
+public class FlightPlanService {
+
+    private static final Logger log = LoggerFactory.getLogger(FlightPlanService.class);
+
+    // Orders being planned or waiting to be written at any one time
+    private static final int IN_FLIGHT = Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+
+    // Receives each finished plan; the controller writes it out as one NDJSON line
+    public interface PlanWriter {
+        void write(DeliveryPathResult plan) throws IOException;
+    }
+
+    private final DynamicDataService dds;
+    private final DeliveryPathService deliveryPaths;
+    private final ObjectMapper objectMapper;
+    private final Duration streamTimeout;
+
+    public FlightPlanService(DynamicDataService dds, DeliveryPathService deliveryPaths, ObjectMapper objectMapper,
+                             @Value("${drone.plan.timeout-ms:600000}") long streamTimeoutMs) {
+        this.dds = dds;
+        this.deliveryPaths = deliveryPaths;
+        this.objectMapper = objectMapper;
+        this.streamTimeout = Duration.ofMillis(streamTimeoutMs);
+    }
+
+    // How long a day's plans may take to stream before the response is cut off
+    public Duration streamTimeout() {
+        return streamTimeout;
+    }
+
+    /**
+     * Reads a JSON array of orders and writes one plan per order. Restaurants and the airspace are fetched once
+     * for the day, and each restaurant's path comes from DeliveryPathService, so it is searched for once and
+     * looked up after that. Only the calling thread writes, between reading orders and once they have all been
+     * read. Cancelling the budget stops the searches still running; so does a failed write, which then stops the
+     * day and is rethrown.
+     */
+    public void planDay(InputStream orders, PlanWriter writer, SearchBudget budget) throws IOException {
+        List<nameData.Restaurant> restaurants = dds.fetchRestaurants();
+        Airspace airspace = dds.fetchAirspace();
+        if (airspace == null) {
+            throw new IllegalStateException("Central area fetch failed");
+        }
+        OrderValidation.OrderValidationService validationService = new OrderValidation.OrderValidationService(dds);
+
+        // Plans come back here from the search pool, and are only written by the thread reading the orders
+        BlockingQueue<DeliveryPathResult> finished = new LinkedBlockingQueue<>();
+        int inFlight = 0;
+        boolean completed = false;
+        try (JsonParser parser = objectMapper.createParser(orders)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IllegalArgumentException("Expected a JSON array of orders");
+            }
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                // A null order still gets a line saying it is invalid
+                Order order = parser.currentToken() == JsonToken.VALUE_NULL
+                        ? null : objectMapper.readValue(parser, Order.class);
+                for (DeliveryPathResult plan = finished.poll(); plan != null; plan = finished.poll()) {
+                    writer.write(plan);
+                    inFlight--;
+                }
+                for (; inFlight >= IN_FLIGHT; inFlight--) {
+                    writer.write(finished.take());
+                }
+                deliveryPaths.execute(() -> finished.add(planOrAbort(order, validationService, restaurants, airspace, budget)));
+                inFlight++;
+            }
+            for (; inFlight > 0; inFlight--) {
+                writer.write(finished.take());
+            }
+            completed = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Flight planning was interrupted");
+        } finally {
+            // A failed write or read stops the day; the plans still running are dropped
+            if (!completed) {
+                budget.cancel();
+            }
+        }
+    }
+
+    // Every order still gets its line, even if planning it fails
+    private DeliveryPathResult planOrAbort(Order order, OrderValidation.OrderValidationService validationService,
+                                           List<nameData.Restaurant> restaurants, Airspace airspace,
+                                           SearchBudget budget) {
+        try {
+            return plan(order, validationService, restaurants, airspace, budget);
+        } catch (RuntimeException e) {
+            log.error("Could not plan order {}: {}", order == null ? null : order.orderNo, e.getMessage());
+            return new DeliveryPathResult(order == null ? null : order.orderNo,
+                    Orderstats.DeliveryPathStatus.SEARCH_ABORTED.name(),
+                    Orderstats.OrderValidationCode.UNDEFINED.name(), null);
+        }
+    }
+
+    private DeliveryPathResult plan(Order order, OrderValidation.OrderValidationService validationService,
+                                    List<nameData.Restaurant> restaurants, Airspace airspace, SearchBudget budget) {
+        String orderNo = order == null ? null : order.orderNo;
+        OrderValidationResult validation = validationService.validateBatchOrder(order, restaurants);
+        if (validation.orderStatus.equals(Orderstats.OrderStatus.INVALID.name())
+                || validation.matchedRestaurants == null || validation.matchedRestaurants.size() != 1) {
+            return new DeliveryPathResult(orderNo, Orderstats.DeliveryPathStatus.INVALID.name(),
+                    validation.orderValidationCode, null);
+        }
+
+        nameData.Restaurant restaurant = validation.matchedRestaurants.get(0);
+        DeliveryPathService.DeliveryPath path;
+        try {
+            path = deliveryPaths.pathFor(restaurant.getLocation(), airspace, null, null,
+                    deliveryPaths.newBudget(budget));
+        } catch (SearchAbortedException e) {
+            log.warn("Flight plan for order {} from {} stopped: {}", orderNo, restaurant.getName(), e.getMessage());
+            Orderstats.DeliveryPathStatus status = e.getReason() == SearchAbortedException.Reason.EXPANSION_LIMIT
+                    ? Orderstats.DeliveryPathStatus.NO_PATH : Orderstats.DeliveryPathStatus.SEARCH_ABORTED;
+            return new DeliveryPathResult(orderNo, status.name(), validation.orderValidationCode, null);
+        }
+        if (path.isEmpty()) {
+            return new DeliveryPathResult(orderNo, Orderstats.DeliveryPathStatus.NO_PATH.name(),
+                    validation.orderValidationCode, null);
+        }
+        return new DeliveryPathResult(orderNo, Orderstats.DeliveryPathStatus.PATH_FOUND.name(),
+                validation.orderValidationCode, roundTrip(path.positions()));
+    }
+
+    // The delivery path run backwards to the restaurant, a hover to collect, the path itself and a hover to deliver
+    static List<Position> roundTrip(List<Position> delivery) {
+        List<Position> trip = new ArrayList<>(2 * delivery.size() + 2);
+        for (int i = delivery.size() - 1; i >= 0; i--) {
+            trip.add(delivery.get(i));
+        }
+        trip.add(delivery.get(0));
+        trip.addAll(delivery);
+        trip.add(delivery.get(delivery.size() - 1));
+        return trip;
+    }
+}
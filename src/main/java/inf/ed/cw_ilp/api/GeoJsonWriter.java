@@ -0,0 +1,58 @@
+package inf.ed.cw_ilp.api;
+
+import com.google.gson.stream.JsonWriter;
+import inf.ed.cw_ilp.model.Regions.Position;
+import org.springframework.http.MediaType;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * GeoJsonWriter writes a delivery path as a GeoJSON FeatureCollection holding one LineString feature.
+ * It streams through a Gson JsonWriter, so coordinates go straight from the path to the output without a
+ * document being built in memory first.
+ */
+public final class GeoJsonWriter {
+
+    public static final MediaType GEO_JSON = MediaType.parseMediaType("application/geo+json");
+
+    private GeoJsonWriter() {
+    }
+
+    // Hovers (the same position twice in a row) are written once, as a LineString has no use for them
+    public static void writeDeliveryPath(List<Position> path, OutputStream out) throws IOException {
+        JsonWriter json = new JsonWriter(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)));
+        json.beginObject();
+        json.name("type").value("FeatureCollection");
+        json.name("features").beginArray();
+
+        json.beginObject();
+        json.name("type").value("Feature");
+        json.name("geometry").beginObject();
+        json.name("type").value("LineString");
+        json.name("coordinates").beginArray();
+        Position previous = null;
+        for (Position position : path) {
+            if (!position.equals(previous)) {
+                json.beginArray().value(position.lng()).value(position.lat()).endArray();
+            }
+            previous = position;
+        }
+        json.endArray();
+        json.endObject();
+        json.name("properties").beginObject();
+        json.name("type").value("DeliveryPath");
+        json.name("stroke").value("#000000");
+        json.endObject();
+        json.endObject();
+
+        json.endArray();
+        json.endObject();
+        // Flushes the buffer; the servlet container owns the stream, so it isn't closed here
+        json.flush();
+    }
+}
@@ -1,6 +1,7 @@
 package inf.ed.cw_ilp.api;
 
 import inf.ed.cw_ilp.model.Regions.Position;
+import inf.ed.cw_ilp.model.Regions.PreparedRegion;
 import inf.ed.cw_ilp.model.Regions.Region;
 import inf.ed.cw_ilp.model.Regions.Requests;
 import inf.ed.cw_ilp.model.pathFinder.nameData;
@@ -63,7 +64,7 @@ public class LngLatAPI {
 
             double distance = calculateEuclideanDistance(lng1, lat1, lng2, lat2);
 
-            return ResponseEntity.ok(distance <= 0.00015);
+            return ResponseEntity.ok(distance <= Constants.CLOSE_DISTANCE);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(false);
         }
@@ -78,12 +79,11 @@ public class LngLatAPI {
 
         double distance = calculateEuclideanDistance(lng1, lat1, lng2, lat2);
 
-        return (distance <= 0.00015);
+        return (distance <= Constants.CLOSE_DISTANCE);
     }
 
     // End-point 4
     // End-point to get the next Position of the drone each move is constant 0.00015
-    private static final double MOVE_DISTANCE = 0.00015;
     public ResponseEntity<Position> nextPosition(Requests.LngLatAngleRequest request) {
         if (request.start() == null) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
@@ -100,8 +100,8 @@ public class LngLatAPI {
 
         if (Constants.VALID_ANGLES.contains(angle)) {
             double angleInRadians = Math.toRadians(angle);
-            double deltaLng = MOVE_DISTANCE * Math.cos(angleInRadians);
-            double deltaLat = MOVE_DISTANCE * Math.sin(angleInRadians);
+            double deltaLng = Constants.MOVE_DISTANCE * Math.cos(angleInRadians);
+            double deltaLat = Constants.MOVE_DISTANCE * Math.sin(angleInRadians);
             double newLng = startLng + deltaLng;
             double newLat = startLat + deltaLat;
 
@@ -125,7 +125,7 @@ public class LngLatAPI {
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
             }
 
-            boolean result = isPointInsidePolygon(position, vertices);
+            boolean result = PreparedRegion.contains(vertices, position);
             return ResponseEntity.ok(result);
 
         } catch (NoSuchMethodError | NullPointerException e) {
@@ -138,81 +138,6 @@ public class LngLatAPI {
             throw new IllegalArgumentException("Region vertices are null or empty");
         }
 
-        Position[] vertices = region.getCoordinates();
-        return isPointInsidePolygon(position, vertices);
+        return PreparedRegion.contains(region.getCoordinates(), position);
     }
-
-    private boolean isPointInsidePolygon(Position position, Position[] vertices) {
-        int count = 0;
-
-        // Check if the point is on any edge first
-        for (int i = 0; i < vertices.length; i++) {
-            Position currentVertex = vertices[i];
-            Position nextVertex = vertices[(i + 1) % vertices.length];
-
-            // Check if the point is on the edge
-            if (isPointOnEdge(position, currentVertex, nextVertex)) {
-                return true;
-            }
-        }
-
-        // Ray-casting algorithm for point inside polygon
-        for (int i = 0; i < vertices.length; i++) {
-            Position currentVertex = vertices[i];
-            Position nextVertex = vertices[(i + 1) % vertices.length];
-
-            if (isPointInsideRay(position, currentVertex, nextVertex)) {
-                count++;
-            }
-        }
-        return count % 2 == 1;  // If odd, point is inside; if even, point is outside
-    }
-
-    private boolean isPointOnEdge(Position position, Position currentVertex, Position nextVertex) {
-        // Check if the point is on the horizontal edge
-
-        boolean isHorizontal = currentVertex.lat() == nextVertex.lat();
-        boolean isVertical = currentVertex.lng() == nextVertex.lng();
-
-        if (isHorizontal) {
-            // If the edge is horizontal, check if the point's latitude matches and its longitude is between the edge's bounds
-            return position.lat() == currentVertex.lat() &&
-                    position.lng() >= Math.min(currentVertex.lng(), nextVertex.lng()) &&
-                    position.lng() <= Math.max(currentVertex.lng(), nextVertex.lng());
-        }
-
-        if (isVertical) {
-            // If the edge is vertical, check if the point's longitude matches and its latitude is between the edge's bounds
-            return position.lng() == currentVertex.lng() &&
-                    position.lat() >= Math.min(currentVertex.lat(), nextVertex.lat()) &&
-                    position.lat() <= Math.max(currentVertex.lat(), nextVertex.lat());
-        }
-
-        // General case: non-horizontal and non-vertical edge, check the slope of the line
-        boolean firstCondition = position.lng() > Math.min(currentVertex.lng(), nextVertex.lng());
-        boolean secondCondition = position.lng() <= Math.max(currentVertex.lng(), nextVertex.lng());
-        if (firstCondition && secondCondition) {
-            // Calculate the slope of the line between current and next vertex
-            double slope = (nextVertex.lat() - currentVertex.lat()) / (nextVertex.lng() - currentVertex.lng());
-            double latitude = slope * (position.lng() - currentVertex.lng()) + currentVertex.lat();
-            if (position.lat() == latitude) {
-                return true;
-            }
-        }
-
-        return false;
-    }
-
-
-    private boolean isPointInsideRay(Position position, Position currentVertex, Position nextVertex) {
-        boolean latitudeCondition = position.lat() <= Math.max(nextVertex.lat(), currentVertex.lat()) &&
-                position.lat() > Math.min(nextVertex.lat(), currentVertex.lat());
-
-        double latitudeFraction = ((position.lat() - currentVertex.lat()) / (nextVertex.lat() - currentVertex.lat())) * (nextVertex.lng() - currentVertex.lng());
-        boolean longitudeCondition = position.lng() < (currentVertex.lng() + latitudeFraction);
-
-        return longitudeCondition && latitudeCondition;
-    }
-
-
 }
@@ -13,6 +13,7 @@ import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 import static inf.ed.cw_ilp.utils.Constants.DELIVERY_COST;
 
@@ -29,6 +30,35 @@ public class OrderValidation {
         }
 
         public OrderValidationResult validateOrder(Order order) {
+            return validateOrder(order, dds::fetchRestaurants);
+        }
+
+        // Validates against restaurants fetched by the caller, so a batch of orders shares one fetch
+        public OrderValidationResult validateOrder(Order order, List<nameData.Restaurant> restaurants) {
+            return validateOrder(order, () -> restaurants);
+        }
+
+        // For batches: a null or malformed order is reported as invalid instead of failing the whole batch
+        public OrderValidationResult validateBatchOrder(Order order, List<nameData.Restaurant> restaurants) {
+            if (order == null) {
+                return new OrderValidationResult(
+                        Orderstats.OrderStatus.INVALID.name(),
+                        Orderstats.OrderValidationCode.EMPTY_ORDER.name()
+                );
+            }
+            try {
+                return validateOrder(order, restaurants);
+            } catch (RuntimeException e) {
+                log.warn("Could not validate order {}: {}", order.orderNo, e.getMessage());
+                return new OrderValidationResult(
+                        Orderstats.OrderStatus.INVALID.name(),
+                        Orderstats.OrderValidationCode.UNDEFINED.name()
+                );
+            }
+        }
+
+        // The restaurants are only fetched once the order has passed the checks that don't need them
+        private OrderValidationResult validateOrder(Order order, Supplier<List<nameData.Restaurant>> restaurants) {
 
             // (1) Existing checks (empty order, max pizzas, valid credit card, etc.)
             if (order.pizzasInOrder == null || order.pizzasInOrder.isEmpty()) {
@@ -89,7 +119,7 @@ public class OrderValidation {
                 );
             }
             String dayOfWeek = date.getDayOfWeek().toString();
-            List<nameData.Restaurant> allRestaurants = dds.fetchRestaurants();
+            List<nameData.Restaurant> allRestaurants = restaurants.get();
 
             boolean dayOpen = false;
             boolean pizzasOk = false;
@@ -1,29 +1,47 @@
 package inf.ed.cw_ilp.controller;
 
+import inf.ed.cw_ilp.api.DeliveryPathService;
 import inf.ed.cw_ilp.api.DynamicDataService;
+import inf.ed.cw_ilp.api.FlightPlanService;
+import inf.ed.cw_ilp.api.GeoJsonWriter;
 import inf.ed.cw_ilp.api.LngLatAPI;
 import inf.ed.cw_ilp.api.OrderValidation;
 import inf.ed.cw_ilp.model.Regions.Position;
 import inf.ed.cw_ilp.model.Regions.Region;
 import inf.ed.cw_ilp.model.pathFinder.*;
 import inf.ed.cw_ilp.model.Regions.Requests;
+import inf.ed.cw_ilp.model.orderRelated.DeliveryPathResult;
 import inf.ed.cw_ilp.model.orderRelated.Order;
 import inf.ed.cw_ilp.model.orderRelated.OrderValidationResult;
 import inf.ed.cw_ilp.model.orderRelated.Orderstats;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.ETag;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.StreamUtils;
 import org.springframework.web.bind.annotation.*;
-import com.google.gson.Gson;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
-import static inf.ed.cw_ilp.utils.Constants.APPLETON_TOWER;
 
 @RestController
 @RequestMapping("")
@@ -31,11 +49,20 @@ public class PizzaDroneController {
 
     private final LngLatAPI lnglatAPI;
     private final DynamicDataService dds;
+    private final DeliveryPathService deliveryPaths;
+    private final FlightPlanService flightPlans;
+    private final ObjectMapper objectMapper;
     private static final Logger log = LoggerFactory.getLogger(PizzaDroneController.class);
+    private static final MediaType DRONE_PATH = MediaType.parseMediaType(DronePathCodec.MEDIA_TYPE);
 
-    public PizzaDroneController(OrderValidation runRepo, LngLatAPI lngLatRequest, DynamicDataService dds) {
+    public PizzaDroneController(OrderValidation runRepo, LngLatAPI lngLatRequest, DynamicDataService dds,
+                                DeliveryPathService deliveryPaths, FlightPlanService flightPlans,
+                                ObjectMapper objectMapper) {
         this.lnglatAPI = lngLatRequest;
         this.dds = dds;
+        this.deliveryPaths = deliveryPaths;
+        this.flightPlans = flightPlans;
+        this.objectMapper = objectMapper;
     }
 
     // End-Point 1
@@ -88,7 +115,78 @@ public class PizzaDroneController {
     }
 
     @PostMapping("/calcDeliveryPath")
-    public ResponseEntity<?> calcDeliveryPath(@RequestBody Order order) {
+    public DeferredResult<ResponseEntity<?>> calcDeliveryPath(@RequestBody Order order,
+                                                              @RequestParam(required = false) SearchMode mode,
+                                                              @RequestParam(required = false) Long budgetMs,
+                                                              @RequestParam(required = false) PathEncoding.Format format,
+                                                              @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                                              @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        // The work runs on the search pool; if the client goes away or the request times out the search is cancelled
+        boolean binary = acceptsDronePath(accept);
+        SearchBudget budget = deliveryPaths.newBudget();
+        DeferredResult<ResponseEntity<?>> result = new DeferredResult<>();
+        result.onError(error -> budget.cancel());
+        result.onTimeout(budget::cancel);
+        deliveryPaths.execute(() -> {
+            try {
+                result.setResult(deliveryPathResponse(order, mode, budgetMs, format, binary, ifNoneMatch, budget));
+            } catch (RuntimeException e) {
+                result.setErrorResult(e);
+            }
+        });
+        return result;
+    }
+
+    // Either the path for a valid order, with its entity tag, or the response to send instead:
+    // why there is no path, or 304 if the client already has it
+    private record PathLookup(DeliveryPathService.DeliveryPath path, nameData.Restaurant restaurant, Airspace airspace,
+                              String etag, ResponseEntity<?> response) {
+
+        static PathLookup answered(ResponseEntity<?> response) {
+            return new PathLookup(null, null, null, null, response);
+        }
+    }
+
+    // True if the client lists the binary path type; a wildcard alone still gets JSON
+    private static boolean acceptsDronePath(String accept) {
+        if (accept == null) {
+            return false;
+        }
+        try {
+            return MediaType.parseMediaTypes(accept).stream()
+                    .anyMatch(type -> type.equalsTypeAndSubtype(DRONE_PATH) && type.getQualityValue() > 0);
+        } catch (InvalidMediaTypeException e) {
+            return false;
+        }
+    }
+
+    private ResponseEntity<?> deliveryPathResponse(Order order, SearchMode mode, Long budgetMs, PathEncoding.Format format,
+                                                   boolean binary, String ifNoneMatch, SearchBudget budget) {
+        PathEncoding.Format pathFormat = format == null ? PathEncoding.Format.POSITIONS : format;
+        PathLookup lookup = lookUpPath(order, mode, budgetMs, binary ? "drone-path" : "json-" + pathFormat, ifNoneMatch, budget);
+        if (lookup.response() != null) {
+            return lookup.response();
+        }
+        DeliveryPathService.DeliveryPath path = lookup.path();
+
+        // 10) Otherwise, return 200 OK with path, and how close to the shortest it is known to be
+        // ?format=SEGMENTS or MOVES sends the same path compacted, see PathEncoding
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().varyBy(HttpHeaders.ACCEPT).eTag(lookup.etag());
+        if (!Double.isNaN(path.suboptimalityBound())) {
+            response.header("X-Suboptimality-Bound", String.valueOf(path.suboptimalityBound()));
+        }
+        // Accept: application/x-drone-path gets the moves in binary instead, see DronePathCodec
+        if (binary) {
+            return response.contentType(DRONE_PATH).body(DronePathCodec.encode(lookup.airspace().version(),
+                    lookup.restaurant().getName(), path.positions()));
+        }
+        return response.body(PathEncoding.encode(path.positions(), pathFormat));
+    }
+
+    // Validates the order once and searches once; shared by the JSON and GeoJSON endpoints.
+    // The representation names the response body, as part of its entity tag
+    private PathLookup lookUpPath(Order order, SearchMode mode, Long budgetMs, String representation, String ifNoneMatch,
+                                  SearchBudget budget) {
 
         // 1) Validate
         OrderValidation.OrderValidationService validationService =
@@ -97,23 +195,22 @@ public class PizzaDroneController {
 
         // 2) If invalid, return 400
         if (validationResult.orderStatus.equals(Orderstats.OrderStatus.INVALID.name())) {
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(validationResult);
+            return PathLookup.answered(ResponseEntity.status(HttpStatus.BAD_REQUEST).body(validationResult));
         }
 
-        // 3) Fetch central + noFly
-        nameData.NamedRegion centralArea = dds.fetchCentralArea();
-        List<nameData.NamedRegion> noFlyZones = dds.fetchNoFlyZones();
+        // 3) Fetch central + noFly, compiled once per data refresh
+        Airspace airspace = dds.fetchAirspace();
 
-        if (centralArea == null || centralArea.getCoordinates() == null) {
+        if (airspace == null) {
             log.error("Central area is not fetched correctly");
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Central area fetch failed");
+            return PathLookup.answered(ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Central area fetch failed"));
         }
         // 4) Retrieve matched restaurants
         List<nameData.Restaurant> matched = validationResult.matchedRestaurants;
         if (matched == null || matched.size() != 1) {
             // Should not happen if it's "VALID" => but let's be safe:
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
-                    .body("No single matched restaurant found");
+            return PathLookup.answered(ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body("No single matched restaurant found"));
         }
 
         // 5) We have exactly one match
@@ -122,96 +219,247 @@ public class PizzaDroneController {
         // 6) Start from the restaurant's location
         Position start = matchedRestaurant.getLocation();
 
-        // 7) The end is Appleton
-        Position end = APPLETON_TOWER;
+        // 7) A client already holding the cached path gets a 304 before any search or serialisation
+        DeliveryPathService.DeliveryPath cached = deliveryPaths.cachedPath(start, airspace, mode);
+        if (cached != null && !cached.isEmpty()) {
+            String etag = deliveryPaths.etagFor(matchedRestaurant, airspace, cached, representation);
+            if (isNotModified(ifNoneMatch, etag)) {
+                return notModified(etag);
+            }
+        }
 
-        // 8) Build A_Star, run it
-        A_Star aStar = new A_Star(start, end, centralArea, noFlyZones);
-        List<Position> path = aStar.calculatePath();
+        // 8) The end is always Appleton, so the path usually comes straight from the cache
+        // The search can be picked per request (?mode=ANYTIME&budgetMs=100), otherwise drone.path.* applies
+        DeliveryPathService.DeliveryPath path;
+        try {
+            path = deliveryPaths.pathFor(start, airspace, mode, budgetMs == null ? null : Duration.ofMillis(budgetMs), budget);
+        } catch (SearchAbortedException e) {
+            // The search gave up: out of time is the server's problem, too much exploring means the restaurant is cut off
+            log.warn("Delivery path search for {} stopped: {}", matchedRestaurant.getName(), e.getMessage());
+            HttpStatus status = e.getReason() == SearchAbortedException.Reason.EXPANSION_LIMIT
+                    ? HttpStatus.UNPROCESSABLE_ENTITY : HttpStatus.SERVICE_UNAVAILABLE;
+            return PathLookup.answered(ResponseEntity.status(status).body(e.getMessage()));
+        }
 
         // 9) If no path, respond 400
         if (path.isEmpty()) {
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
-                    .body("No valid path found for this order");
+            return PathLookup.answered(ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body("No valid path found for this order"));
         }
+        // The tag is taken from the path served, which may not be the one checked above;
+        // a client can hold it even though nothing was cached, say after a restart
+        String etag = deliveryPaths.etagFor(matchedRestaurant, airspace, path, representation);
+        if (isNotModified(ifNoneMatch, etag)) {
+            return notModified(etag);
+        }
+        return new PathLookup(path, matchedRestaurant, airspace, etag, null);
+    }
 
-        // 10) Otherwise, return 200 OK with path
-        return ResponseEntity.ok(path);
+    // A 304 carries the headers the 200 would have, so caches key it the same way
+    private static PathLookup notModified(String etag) {
+        return PathLookup.answered(ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .varyBy(HttpHeaders.ACCEPT).eTag(etag).build());
     }
 
-    @ResponseStatus(HttpStatus.CREATED)
-    @PostMapping("/calcDeliveryPathAsGeoJson")
-    public ResponseEntity<?> calcDeliveryPathAsGeoJson(@RequestBody Order order) {
-        try {
-            // Call the calcDeliveryPath method to get the delivery path
-            ResponseEntity<?> pathResponse = calcDeliveryPath(order);
-            OrderValidation.OrderValidationService validationService =
-                    new OrderValidation.OrderValidationService(dds);
-            OrderValidationResult validationResult = validationService.validateOrder(order);
-
-            // 2) If invalid, return 400
-            if (validationResult.orderStatus.equals(Orderstats.OrderStatus.INVALID.name())) {
-                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(validationResult);
+    @PostMapping("/calcDeliveryPaths")
+    public DeferredResult<ResponseEntity<?>> calcDeliveryPaths(@RequestBody List<Order> orders,
+                                                               @RequestParam(required = false) SearchMode mode,
+                                                               @RequestParam(required = false) Long budgetMs) {
+        // Cancelling the batch budget cancels every search forked from it
+        SearchBudget budget = deliveryPaths.newBudget();
+        DeferredResult<ResponseEntity<?>> result = new DeferredResult<>();
+        result.onError(error -> budget.cancel());
+        result.onTimeout(budget::cancel);
+        deliveryPaths.execute(() -> {
+            try {
+                deliveryPathsResponse(orders, mode, budgetMs, budget).whenComplete((response, error) -> {
+                    if (error != null) {
+                        result.setErrorResult(error instanceof CompletionException ? error.getCause() : error);
+                    } else {
+                        result.setResult(response);
+                    }
+                });
+            } catch (RuntimeException e) {
+                result.setErrorResult(e);
             }
+        });
+        return result;
+    }
 
-            // Log the entire response
-            log.info("Path Response: {}", pathResponse);
-            log.info("Path Body: {}", pathResponse.getBody());
-
-            // Check if response body is an instance of ArrayList<Position>
-            if (pathResponse.getBody() instanceof List) {
-                List<Position> pathList = (List<Position>) pathResponse.getBody();  // Cast to List<Position>
-                log.info("The correct path is: {}", pathList);
+    @PostMapping(value = "/calcDayFlightPlans", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<ResponseBodyEmitter> calcDayFlightPlans(HttpServletRequest request) throws IOException {
+        // Orders are read from the body while plans go out, one JSON line each, as soon as they are done
+        InputStream orders = request.getInputStream();
+        SearchBudget budget = new SearchBudget(Long.MAX_VALUE, null);
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(flightPlans.streamTimeout().toMillis());
+        emitter.onError(error -> budget.cancel());
+        emitter.onTimeout(budget::cancel);
+
+        // The driver mostly waits on the body and for plans to write, so it gets a virtual thread, not a search one
+        Thread.ofVirtual().name("day-flight-plans").start(() -> {
+            try {
+                flightPlans.planDay(orders, plan -> emitter.send(
+                        objectMapper.writeValueAsString(plan) + "\n", MediaType.APPLICATION_NDJSON), budget);
+                emitter.complete();
+            } catch (IOException | RuntimeException e) {
+                log.warn("Day flight plans stopped: {}", e.getMessage());
+                emitter.completeWithError(e);
+            }
+        });
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(emitter);
+    }
 
-                if (pathList == null || pathList.isEmpty()) {
-                    return new ResponseEntity<>(HttpStatus.BAD_REQUEST); // If path is empty or null, return a 400
-                }
+    // Status and path for one restaurant, shared by every order from it
+    private record Route(Orderstats.DeliveryPathStatus status, List<Position> path) {}
+
+    /**
+     * Validates the batch on the calling search thread, then runs one search per restaurant on the search pool.
+     * The response is put together once the last search is done, rather than by a search thread waiting for
+     * the others, which could leave every pool thread waiting and none searching.
+     */
+    private CompletableFuture<ResponseEntity<?>> deliveryPathsResponse(List<Order> orders, SearchMode mode,
+                                                                       Long budgetMs, SearchBudget budget) {
+        if (orders == null) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.BAD_REQUEST).body("No orders given"));
+        }
 
-                // List to store unique path coordinates
-                List<double[]> pathCoordinates = new ArrayList<>();
+        // 1) Fetch the restaurants and the airspace once for the whole batch
+        List<nameData.Restaurant> restaurants = dds.fetchRestaurants();
+        Airspace airspace = dds.fetchAirspace();
+        if (airspace == null) {
+            log.error("Central area is not fetched correctly");
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Central area fetch failed"));
+        }
 
-                // Filter the path to remove duplicates (hovering steps)
-                for (int i = 0; i < pathList.size(); i++) {
-                    if (i == 0 || !pathList.get(i).equals(pathList.get(i - 1))) {
-                        pathCoordinates.add(new double[]{pathList.get(i).lng(), pathList.get(i).lat()});
-                    }
-                }
+        // 2) Validate; every order reads the same restaurant list
+        OrderValidation.OrderValidationService validationService =
+                new OrderValidation.OrderValidationService(dds);
+        List<OrderValidationResult> validations = orders.stream()
+                .map(order -> validationService.validateBatchOrder(order, restaurants))
+                .toList();
+
+        // 3) One search per distinct restaurant, each with its own expansion budget so one cut-off
+        // restaurant can't use up the others'. The workers keep their search workspaces between batches
+        Map<Position, nameData.Restaurant> toRoute = new LinkedHashMap<>();
+        for (OrderValidationResult validation : validations) {
+            if (isRoutable(validation)) {
+                nameData.Restaurant restaurant = validation.matchedRestaurants.get(0);
+                toRoute.putIfAbsent(restaurant.getLocation(), restaurant);
+            }
+        }
+        Duration timeBudget = budgetMs == null ? null : Duration.ofMillis(budgetMs);
+        Map<Position, CompletableFuture<Route>> routes = new LinkedHashMap<>();
+        for (nameData.Restaurant restaurant : toRoute.values()) {
+            SearchBudget fork = budget.fork();
+            routes.put(restaurant.getLocation(), CompletableFuture.supplyAsync(
+                    () -> route(restaurant, airspace, mode, timeBudget, fork), deliveryPaths::execute));
+        }
+        return CompletableFuture.allOf(routes.values().toArray(new CompletableFuture[0]))
+                .thenApply(done -> deliveryPathResults(orders, validations, routes));
+    }
 
-                // Build the GeoJSON structure
-                Map<String, Object> pathFeature = new HashMap<>();
-                pathFeature.put("type", "Feature");
+    // 4) One result per order, in the order they were sent
+    private static ResponseEntity<?> deliveryPathResults(List<Order> orders, List<OrderValidationResult> validations,
+                                                         Map<Position, CompletableFuture<Route>> routes) {
+        List<DeliveryPathResult> results = new ArrayList<>(orders.size());
+        for (int i = 0; i < orders.size(); i++) {
+            Order order = orders.get(i);
+            OrderValidationResult validation = validations.get(i);
+            String orderNo = order == null ? null : order.orderNo;
+            if (!isRoutable(validation)) {
+                results.add(new DeliveryPathResult(orderNo, Orderstats.DeliveryPathStatus.INVALID.name(),
+                        validation.orderValidationCode, null));
+                continue;
+            }
+            Route route = routes.get(validation.matchedRestaurants.get(0).getLocation()).join();
+            results.add(new DeliveryPathResult(orderNo, route.status().name(), validation.orderValidationCode,
+                    route.path()));
+        }
+        return ResponseEntity.ok(results);
+    }
 
-                Map<String, Object> pathGeometry = new HashMap<>();
-                pathGeometry.put("type", "LineString");
-                pathGeometry.put("coordinates", pathCoordinates);
+    private static boolean isRoutable(OrderValidationResult validation) {
+        return !validation.orderStatus.equals(Orderstats.OrderStatus.INVALID.name())
+                && validation.matchedRestaurants != null && validation.matchedRestaurants.size() == 1;
+    }
 
-                pathFeature.put("geometry", pathGeometry);
-                pathFeature.put("properties", Map.of(
-                        "type", "DeliveryPath",
-                        "stroke", "#000000"
-                ));
+    private Route route(nameData.Restaurant restaurant, Airspace airspace, SearchMode mode, Duration timeBudget,
+                        SearchBudget budget) {
+        try {
+            DeliveryPathService.DeliveryPath path =
+                    deliveryPaths.pathFor(restaurant.getLocation(), airspace, mode, timeBudget, budget);
+            return path.isEmpty()
+                    ? new Route(Orderstats.DeliveryPathStatus.NO_PATH, null)
+                    : new Route(Orderstats.DeliveryPathStatus.PATH_FOUND, path.positions());
+        } catch (SearchAbortedException e) {
+            // Same split as the single endpoint: too much exploring means the restaurant is cut off
+            log.warn("Delivery path search for {} stopped: {}", restaurant.getName(), e.getMessage());
+            return new Route(e.getReason() == SearchAbortedException.Reason.EXPANSION_LIMIT
+                    ? Orderstats.DeliveryPathStatus.NO_PATH : Orderstats.DeliveryPathStatus.SEARCH_ABORTED, null);
+        }
+    }
 
-                Map<String, Object> geoJson = new HashMap<>();
-                geoJson.put("type", "FeatureCollection");
+    @PostMapping("/calcDeliveryPathAsGeoJson")
+    public DeferredResult<ResponseEntity<StreamingResponseBody>> calcDeliveryPathAsGeoJson(@RequestBody Order order,
+                                                                                         @RequestParam(required = false) PathEncoding.Format format,
+                                                                                         @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        // Like /calcDeliveryPath, the lookup runs on the search pool and is cancelled with the request
+        SearchBudget budget = deliveryPaths.newBudget();
+        DeferredResult<ResponseEntity<StreamingResponseBody>> result = new DeferredResult<>();
+        result.onError(error -> budget.cancel());
+        result.onTimeout(budget::cancel);
+        deliveryPaths.execute(() -> {
+            try {
+                result.setResult(geoJsonResponse(order, format, ifNoneMatch, budget));
+            } catch (RuntimeException e) {
+                result.setErrorResult(e);
+            }
+        });
+        return result;
+    }
 
-                List<Map<String, Object>> features = new ArrayList<>();
-                features.add(pathFeature);
-                geoJson.put("features", features);
+    private ResponseEntity<StreamingResponseBody> geoJsonResponse(Order order, PathEncoding.Format format,
+                                                                  String ifNoneMatch, SearchBudget budget) {
+        // A LineString needs positions; ?format=SEGMENTS draws the same line with a vertex only where it turns
+        if (format == PathEncoding.Format.MOVES) {
+            return streamed(ResponseEntity.status(HttpStatus.BAD_REQUEST).body("GeoJSON paths can't be sent as moves"));
+        }
+        boolean segments = format == PathEncoding.Format.SEGMENTS;
+        PathLookup lookup = lookUpPath(order, null, null, segments ? "geojson-SEGMENTS" : "geojson", ifNoneMatch, budget);
+        if (lookup.response() != null) {
+            return streamed(lookup.response());
+        }
+        List<Position> path = lookup.path().positions();
+        List<Position> line = segments ? PathEncoding.segments(path) : path;
+        log.debug("GeoJSON delivery path for order {} has {} positions", order.orderNo, line.size());
 
-                // Convert the GeoJSON map to a JSON string
-                String geoJsonString = new Gson().toJson(geoJson);
+        // Written straight to the response as it is serialised, with no document built in memory first
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().contentType(GeoJsonWriter.GEO_JSON).eTag(lookup.etag());
+        return response.body(out -> GeoJsonWriter.writeDeliveryPath(line, out));
+    }
 
-                // Return the GeoJSON string
-                return new ResponseEntity<>(geoJsonString, HttpStatus.OK);
-            } else {
-                log.error("Unexpected response body type: {}", pathResponse.getBody().getClass().getName());
-                return new ResponseEntity<>(HttpStatus.BAD_REQUEST); // If response is not a list, return 400
-            }
+    // A response with the same status, headers and body, for an endpoint whose body is streamed
+    private ResponseEntity<StreamingResponseBody> streamed(ResponseEntity<?> response) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(response.getStatusCode()).headers(response.getHeaders());
+        Object body = response.getBody();
+        if (body == null) {
+            return builder.build();
+        }
+        if (body instanceof String text) {
+            return builder.contentType(MediaType.TEXT_PLAIN).body(out -> out.write(text.getBytes(StandardCharsets.UTF_8)));
+        }
+        return builder.contentType(MediaType.APPLICATION_JSON)
+                .body(out -> objectMapper.writeValue(StreamUtils.nonClosing(out), body));
+    }
 
-        } catch (Exception e) {
-            log.error("Exception occurred while processing GeoJSON: {}", e.getMessage());
-            return new ResponseEntity<>(HttpStatus.BAD_REQUEST); // Return 400 in case of exception
+    // If-None-Match holds the tag, or is *; compared weakly, as RFC 9110 asks for this header
+    private static boolean isNotModified(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
         }
+        ETag current = ETag.create(etag);
+        return ETag.parse(ifNoneMatch).stream().anyMatch(tag -> tag.isWildcard() || tag.compare(current, false));
     }
 
 
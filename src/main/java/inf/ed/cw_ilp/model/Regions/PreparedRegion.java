@@ -0,0 +1,281 @@
+package inf.ed.cw_ilp.model.Regions;
+
+import inf.ed.cw_ilp.model.pathFinder.nameData;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * PreparedRegion is a polygon made ready for repeated containment tests.
+ * The bounding box and the per-edge values (min/max, slope, deltas) are computed once,
+ * so a test rejects far-away points straight away and otherwise walks the edges in a single pass.
+ * Points on an edge count as inside, exactly as in the original two-pass LngLatAPI test.
+ *
+ * markContained() tests a batch of points at once. When the JVM runs with --add-modules jdk.incubator.vector
+ * the batch goes through SIMD lanes, one point per lane and one edge at a time; otherwise it falls back to
+ * contains() per point. Both do the same floating-point operations, so they always agree.
+ */
+public class PreparedRegion {
+
+    // The Vector API is an incubator module and only there if the JVM was started with it
+    private static final boolean VECTORISED = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()
+            && Lanes.isUseful();
+
+    private final String name;
+    private final int edges;
+
+    // Edge i runs from (startLng[i], startLat[i]) by (deltaLng[i], deltaLat[i])
+    private final double[] startLng;
+    private final double[] startLat;
+    private final double[] deltaLng;
+    private final double[] deltaLat;
+    private final double[] edgeMinLng;
+    private final double[] edgeMaxLng;
+    private final double[] edgeMinLat;
+    private final double[] edgeMaxLat;
+    private final double[] slope;
+    private final boolean[] horizontal;
+    private final boolean[] vertical;
+
+    private final double minLng;
+    private final double maxLng;
+    private final double minLat;
+    private final double maxLat;
+
+    private PreparedRegion(String name, Position[] vertices) {
+        this.name = name;
+        this.edges = vertices == null ? 0 : vertices.length;
+        startLng = new double[edges];
+        startLat = new double[edges];
+        deltaLng = new double[edges];
+        deltaLat = new double[edges];
+        edgeMinLng = new double[edges];
+        edgeMaxLng = new double[edges];
+        edgeMinLat = new double[edges];
+        edgeMaxLat = new double[edges];
+        slope = new double[edges];
+        horizontal = new boolean[edges];
+        vertical = new boolean[edges];
+
+        double boxMinLng = Double.POSITIVE_INFINITY, boxMaxLng = Double.NEGATIVE_INFINITY;
+        double boxMinLat = Double.POSITIVE_INFINITY, boxMaxLat = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < edges; i++) {
+            Position current = vertices[i];
+            Position next = vertices[(i + 1) % edges];
+            startLng[i] = current.lng();
+            startLat[i] = current.lat();
+            deltaLng[i] = next.lng() - current.lng();
+            deltaLat[i] = next.lat() - current.lat();
+            edgeMinLng[i] = Math.min(current.lng(), next.lng());
+            edgeMaxLng[i] = Math.max(current.lng(), next.lng());
+            edgeMinLat[i] = Math.min(current.lat(), next.lat());
+            edgeMaxLat[i] = Math.max(current.lat(), next.lat());
+            horizontal[i] = current.lat() == next.lat();
+            vertical[i] = current.lng() == next.lng();
+            slope[i] = deltaLat[i] / deltaLng[i];
+
+            boxMinLng = Math.min(boxMinLng, current.lng());
+            boxMaxLng = Math.max(boxMaxLng, current.lng());
+            boxMinLat = Math.min(boxMinLat, current.lat());
+            boxMaxLat = Math.max(boxMaxLat, current.lat());
+        }
+        minLng = boxMinLng;
+        maxLng = boxMaxLng;
+        minLat = boxMinLat;
+        maxLat = boxMaxLat;
+    }
+
+    public static PreparedRegion of(Region region) {
+        return new PreparedRegion(region.name(), region.vertices());
+    }
+
+    public static PreparedRegion of(nameData.NamedRegion region) {
+        return new PreparedRegion(region.name, region.getCoordinates());
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isEmpty() {
+        return edges == 0;
+    }
+
+    public double minLng() {
+        return minLng;
+    }
+
+    public double maxLng() {
+        return maxLng;
+    }
+
+    public double minLat() {
+        return minLat;
+    }
+
+    public double maxLat() {
+        return maxLat;
+    }
+
+    public boolean contains(Position position) {
+        return contains(position.lng(), position.lat());
+    }
+
+    public boolean contains(double lng, double lat) {
+        // Anything outside the bounding box can't be inside or on an edge
+        if (lng < minLng || lng > maxLng || lat < minLat || lat > maxLat) {
+            return false;
+        }
+
+        int count = 0;
+        for (int i = 0; i < edges; i++) {
+            if (isOnEdge(i, lng, lat)) {
+                return true;
+            }
+
+            // Ray-casting: count edges crossed by a ray going east from the point
+            if (lat <= edgeMaxLat[i] && lat > edgeMinLat[i]) {
+                double latitudeFraction = ((lat - startLat[i]) / deltaLat[i]) * deltaLng[i];
+                if (lng < startLng[i] + latitudeFraction) {
+                    count++;
+                }
+            }
+        }
+        return count % 2 == 1;  // If odd, point is inside; if even, point is outside
+    }
+
+    /**
+     * One-off test of a point against raw vertices, for callers that only test the region once: preparing it
+     * would cost more than the test. Same single pass and arithmetic as contains(), without the bounding box.
+     */
+    public static boolean contains(Position[] vertices, Position position) {
+        double lng = position.lng();
+        double lat = position.lat();
+        int count = 0;
+        for (int i = 0; i < vertices.length; i++) {
+            Position current = vertices[i];
+            Position next = vertices[(i + 1) % vertices.length];
+            double deltaLng = next.lng() - current.lng();
+            double deltaLat = next.lat() - current.lat();
+            double edgeMinLat = Math.min(current.lat(), next.lat());
+            double edgeMaxLat = Math.max(current.lat(), next.lat());
+
+            boolean onEdge;
+            if (current.lat() == next.lat()) {
+                onEdge = lat == current.lat() && lng >= Math.min(current.lng(), next.lng()) && lng <= Math.max(current.lng(), next.lng());
+            } else if (current.lng() == next.lng()) {
+                onEdge = lng == current.lng() && lat >= edgeMinLat && lat <= edgeMaxLat;
+            } else {
+                onEdge = lng > Math.min(current.lng(), next.lng()) && lng <= Math.max(current.lng(), next.lng())
+                        && lat == deltaLat / deltaLng * (lng - current.lng()) + current.lat();
+            }
+            if (onEdge) {
+                return true;
+            }
+
+            if (lat <= edgeMaxLat && lat > edgeMinLat) {
+                double latitudeFraction = ((lat - current.lat()) / deltaLat) * deltaLng;
+                if (lng < current.lng() + latitudeFraction) {
+                    count++;
+                }
+            }
+        }
+        return count % 2 == 1;
+    }
+
+    /**
+     * Sets inside[i] for every one of the first count points that is in this region or on its edge, and leaves
+     * the other entries alone, so calling it for several regions marks the points in any of them.
+     */
+    public void markContained(double[] lng, double[] lat, int count, boolean[] inside) {
+        if (VECTORISED) {
+            Lanes.markContained(this, lng, lat, count, inside);
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            if (!inside[i] && contains(lng[i], lat[i])) {
+                inside[i] = true;
+            }
+        }
+    }
+
+    private boolean isOnEdge(int i, double lng, double lat) {
+        if (horizontal[i]) {
+            return lat == startLat[i] && lng >= edgeMinLng[i] && lng <= edgeMaxLng[i];
+        }
+        if (vertical[i]) {
+            return lng == startLng[i] && lat >= edgeMinLat[i] && lat <= edgeMaxLat[i];
+        }
+        // General case: the point has to sit on the line through the edge
+        return lng > edgeMinLng[i] && lng <= edgeMaxLng[i]
+                && lat == slope[i] * (lng - startLng[i]) + startLat[i];
+    }
+
+    // The SIMD kernel, in its own class so the incubator classes are only loaded when the module is there
+    private static final class Lanes {
+
+        private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+        // A single lane gains nothing over the scalar loop
+        static boolean isUseful() {
+            return SPECIES.length() > 1;
+        }
+
+        static void markContained(PreparedRegion region, double[] lngs, double[] lats, int count, boolean[] inside) {
+            for (int offset = 0; offset < count; offset += SPECIES.length()) {
+                VectorMask<Double> lanes = SPECIES.indexInRange(offset, count);
+                DoubleVector lng = DoubleVector.fromArray(SPECIES, lngs, offset, lanes);
+                DoubleVector lat = DoubleVector.fromArray(SPECIES, lats, offset, lanes);
+
+                VectorMask<Double> inBox = lanes
+                        .and(lng.compare(VectorOperators.GE, region.minLng))
+                        .and(lng.compare(VectorOperators.LE, region.maxLng))
+                        .and(lat.compare(VectorOperators.GE, region.minLat))
+                        .and(lat.compare(VectorOperators.LE, region.maxLat));
+                if (!inBox.anyTrue()) {
+                    continue;
+                }
+
+                VectorMask<Double> result = oddCrossingsOrOnEdge(region, lng, lat).and(inBox);
+                long bits = result.toLong();
+                while (bits != 0) {
+                    inside[offset + Long.numberOfTrailingZeros(bits)] = true;
+                    bits &= bits - 1;
+                }
+            }
+        }
+
+        // The same ray-casting and on-edge tests as contains(), for every lane at once
+        private static VectorMask<Double> oddCrossingsOrOnEdge(PreparedRegion region, DoubleVector lng, DoubleVector lat) {
+            VectorMask<Double> odd = SPECIES.maskAll(false);
+            VectorMask<Double> onEdge = SPECIES.maskAll(false);
+            for (int i = 0; i < region.edges; i++) {
+                if (region.horizontal[i]) {
+                    onEdge = onEdge.or(lat.compare(VectorOperators.EQ, region.startLat[i])
+                            .and(lng.compare(VectorOperators.GE, region.edgeMinLng[i]))
+                            .and(lng.compare(VectorOperators.LE, region.edgeMaxLng[i])));
+                } else if (region.vertical[i]) {
+                    onEdge = onEdge.or(lng.compare(VectorOperators.EQ, region.startLng[i])
+                            .and(lat.compare(VectorOperators.GE, region.edgeMinLat[i]))
+                            .and(lat.compare(VectorOperators.LE, region.edgeMaxLat[i])));
+                } else {
+                    DoubleVector onLine = lng.sub(region.startLng[i]).mul(region.slope[i]).add(region.startLat[i]);
+                    onEdge = onEdge.or(lng.compare(VectorOperators.GT, region.edgeMinLng[i])
+                            .and(lng.compare(VectorOperators.LE, region.edgeMaxLng[i]))
+                            .and(lat.compare(VectorOperators.EQ, onLine)));
+                }
+
+                VectorMask<Double> spans = lat.compare(VectorOperators.LE, region.edgeMaxLat[i])
+                        .and(lat.compare(VectorOperators.GT, region.edgeMinLat[i]));
+                if (!spans.anyTrue()) {
+                    continue;
+                }
+                DoubleVector latitudeFraction = lat.sub(region.startLat[i]).div(region.deltaLat[i]).mul(region.deltaLng[i]);
+                DoubleVector crossing = latitudeFraction.add(region.startLng[i]);
+                odd = odd.xor(spans.and(lng.compare(VectorOperators.LT, crossing)));
+            }
+            return odd.or(onEdge);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package inf.ed.cw_ilp.model.orderRelated;
+
+import inf.ed.cw_ilp.model.Regions.Position;
+
+import java.util.List;
+
+/**
+ * One order's entry in the /calcDeliveryPaths response. The validation code says why an INVALID order was
+ * rejected, and the path is only set when the status is PATH_FOUND.
+ */
+public record DeliveryPathResult(String orderNo, String status, String orderValidationCode, List<Position> path) {}
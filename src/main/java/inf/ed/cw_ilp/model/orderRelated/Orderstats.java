@@ -11,5 +11,10 @@ public class Orderstats {
         PIZZA_FROM_MULTIPLE_RESTAURANTS, RESTAURANT_CLOSED, PRICE_FOR_PIZZA_INVALID,
         EMPTY_ORDER, UNDEFINED
     }
+
+    // Outcome of one order in a batch of delivery path requests
+    public enum DeliveryPathStatus {
+        PATH_FOUND, INVALID, NO_PATH, SEARCH_ABORTED
+    }
 }
 
@@ -1,7 +1,6 @@
 package inf.ed.cw_ilp.model.pathFinder;
 
-import inf.ed.cw_ilp.api.LngLatAPI;
-import inf.ed.cw_ilp.model.Regions.*;
+import inf.ed.cw_ilp.model.Regions.Position;
 import inf.ed.cw_ilp.utils.Constants;
 
 import java.util.*;
@@ -11,102 +10,185 @@ import java.util.*;
  * It is a very strong and fast algorithm in cases where we know the end-pt. and start point.
  * It takes into consideration no-fly zones, the central area, and restaurant coordinates to compute valid paths.
  */
-public class A_Star {
+public class A_Star implements PathFinder {
 
     private final Position start;
     private final Position end;
-    private final nameData.NamedRegion centralArea;
-    private final List<nameData.NamedRegion> noFlyZones;
-    private final LngLatAPI lngLatAPI;
+    private final Airspace airspace;
+    private final SearchBudget budget;
+    private final Heuristic heuristic;
+
+    // States taken off the open set by the last search, for comparing search variants
+    private int expandedNodes;
+
+    // Whether the last path came from a corridor search rather than the whole lattice
+    private boolean withinCorridor;
+
+    // The 16 neighbours of the state being expanded and their airspace status
+    private final double[] neighborLngs = new double[MoveTable.DIRECTIONS];
+    private final double[] neighborLats = new double[MoveTable.DIRECTIONS];
+    private final boolean[] noFly = new boolean[MoveTable.DIRECTIONS];
+    private final boolean[] central = new boolean[MoveTable.DIRECTIONS];
+
+    // Estimates are stretched by this factor so that among states with the same f-cost the one nearer the goal
+    // comes first. It adds less than a move over MAX_DRONE_MOVES, so the path still has the fewest moves.
+    static final double TIE_BREAK = 1 + 1e-4;
+
+    // Node store reused by every search on the same thread, so repeated searches don't re-allocate it
+    private static final ThreadLocal<NodeStore> WORKSPACE = ThreadLocal.withInitial(() -> new NodeStore(1 << 12));
+    private static final ThreadLocal<IndexedHeap> OPEN_SET = ThreadLocal.withInitial(() -> new IndexedHeap(1 << 12));
+
+    // A workspace grown past this many states is dropped after its search rather than kept by the thread for good
+    static final int RETAINED_CAPACITY = 1 << 15;
 
     public A_Star(Position start, Position end, nameData.NamedRegion centralArea, List<nameData.NamedRegion> noFlyZones) {
+        this(start, end, Airspace.compile(centralArea, noFlyZones));
+    }
+
+    public A_Star(Position start, Position end, Airspace airspace) {
+        this(start, end, airspace, SearchBudget.standard());
+    }
+
+    public A_Star(Position start, Position end, Airspace airspace, SearchBudget budget) {
+        this(start, end, airspace, budget, Heuristic.lattice(end));
+    }
+
+    public A_Star(Position start, Position end, Airspace airspace, SearchBudget budget, Heuristic heuristic) {
         this.start = start;
         this.end = end;
-        this.centralArea = centralArea;
-        this.noFlyZones = noFlyZones;
-        this.lngLatAPI = new LngLatAPI();
+        this.airspace = airspace;
+        this.budget = budget;
+        this.heuristic = heuristic;
     }
 
+    public int getExpandedNodes() {
+        return expandedNodes;
+    }
+
+    @Override
     public List<Position> calculatePath() {
-        PriorityQueue<Node> openSet = new PriorityQueue<>(Comparator.comparingDouble(Node::get_final_cost));
-        Map<Position, Node> Nodes = new HashMap<>();
-        boolean inCentralArea = false;
+        Corridor.Outcome outcome = Corridor.searchFirst(start, end, airspace, this::search);
+        withinCorridor = outcome.withinCorridor();
+        return outcome.path();
+    }
+
+    // A path found inside the corridor is only the shortest there, so no bound is claimed for it
+    @Override
+    public double suboptimalityBound() {
+        return withinCorridor ? Double.NaN : 1;
+    }
+
+    private List<Position> search(Corridor corridor) {
+        try {
+            return search(corridor, WORKSPACE.get(), OPEN_SET.get());
+        } finally {
+            release(WORKSPACE, OPEN_SET);
+        }
+    }
 
-        Node startNode = new Node(start, null, 0, euclideanDistance(start, end));
-        openSet.add(startNode);
-        Nodes.put(start, startNode);
+    private List<Position> search(Corridor corridor, NodeStore nodes, IndexedHeap openSet) {
+        nodes.reset(start);
+        openSet.clear();
+        expandedNodes = 0;
+
+        int startNode = nodes.add(start.lng(), start.lat(), 0, TIE_BREAK * heuristic.estimate(start.lng(), start.lat()), NodeStore.NONE);
+        openSet.push(startNode, nodes.finalCost(startNode));
 
         while (!openSet.isEmpty()) {
-            Node currentNode = openSet.poll();
+            int currentNode = openSet.pop();
+            nodes.close(currentNode);
+            expandedNodes++;
+            budget.expand();
+            double currentLng = nodes.lng(currentNode);
+            double currentLat = nodes.lat(currentNode);
 
             // If current position is close to goal, reconstruct path
-            if (lngLatAPI.isCloseToPoint(currentNode.getPosition(), end)) {
-                return reconstructPath(currentNode);
+            if (distanceToEnd(currentLng, currentLat) <= Constants.CLOSE_DISTANCE) {
+                return reconstructPath(nodes, currentNode);
             }
 
-            // Update flag if drone has entered the central area
-            if (!inCentralArea && lngLatAPI.isPointInRegion(currentNode.getPosition(), centralArea)) {
-                inCentralArea = true;
+            // Once this route has entered the central area it may not leave it again
+            boolean inCentralArea = airspace.isInCentralArea(currentLng, currentLat);
+
+            // Every compass move from the precomputed table, with the airspace tests done for all 16 at once
+            for (int direction = 0; direction < MoveTable.DIRECTIONS; direction++) {
+                neighborLngs[direction] = currentLng + MoveTable.dLng(direction);
+                neighborLats[direction] = currentLat + MoveTable.dLat(direction);
+            }
+            Arrays.fill(noFly, false);
+            airspace.markNoFly(neighborLngs, neighborLats, MoveTable.DIRECTIONS, noFly);
+            if (inCentralArea) {
+                Arrays.fill(central, false);
+                airspace.markInCentralArea(neighborLngs, neighborLats, MoveTable.DIRECTIONS, central);
             }
 
-            // Check neighbors for valid move
-            for (Position neighbor : getNeighbors(currentNode)) {
-                if (isInsideNoFlyZone(neighbor)) continue;
+            double newG = nodes.startCost(currentNode) + Constants.MOVE_DISTANCE;
+            for (int direction = 0; direction < MoveTable.DIRECTIONS; direction++) {
+                double neighborLng = neighborLngs[direction];
+                double neighborLat = neighborLats[direction];
 
-                // If drone has entered the central area, restrict it to central area
-                if (inCentralArea && !lngLatAPI.isPointInRegion(neighbor, centralArea)) {
+                if (corridor != null && !corridor.contains(neighborLng, neighborLat)) continue;
+
+                int neighborNode = nodes.find(neighborLng, neighborLat);
+                if (neighborNode != NodeStore.NONE && (nodes.isClosed(neighborNode) || newG >= nodes.startCost(neighborNode))) {
                     continue;
                 }
 
-                double newG = currentNode.get_start_cost() + euclideanDistance(currentNode.getPosition(), neighbor);
-                Node neighborNode = Nodes.getOrDefault(neighbor, new Node(neighbor, null, Double.MAX_VALUE, 0));
+                if (noFly[direction] || airspace.crossesNoFlyEdge(currentLng, currentLat, neighborLng, neighborLat)) continue;
 
-                if (newG < neighborNode.get_start_cost()) {
-                    neighborNode.setParent(currentNode);
-                    neighborNode.set_start_cost(newG);
-                    neighborNode.set_heuristic_cost(euclideanDistance(neighbor, end));
+                // If drone has entered the central area, restrict it to central area
+                if (inCentralArea && !central[direction]) {
+                    continue;
+                }
 
-                    openSet.add(neighborNode);
-                    Nodes.put(neighbor, neighborNode);
+                // Routes that can't make it within MAX_DRONE_MOVES go no further
+                double estimate = heuristic.estimate(neighborLng, neighborLat);
+                if (!budget.allowsEstimate(newG, estimate)) continue;
+
+                double newF = newG + TIE_BREAK * estimate;
+                if (neighborNode == NodeStore.NONE) {
+                    neighborNode = nodes.add(neighborLng, neighborLat, newG, newF, currentNode);
+                } else {
+                    nodes.update(neighborNode, currentNode, newG, newF);
                 }
+                openSet.pushOrDecrease(neighborNode, newF);
             }
         }
 
         return new ArrayList<>(); // No valid path found
     }
 
-    private double euclideanDistance(Position p1, Position p2) {
-        return Math.sqrt(Math.pow(p1.lng() - p2.lng(), 2) + Math.pow(p1.lat() - p2.lat(), 2));
-    }
-
-    private List<Position> getNeighbors(Node currentNode) {
-        List<Position> neighbors = new ArrayList<>();
-        for (double angle : Constants.VALID_ANGLES) {
-            Position nextPosition = lngLatAPI.nextPosition(new Requests.LngLatAngleRequest(currentNode.getPosition(), angle)).getBody();
-            if (nextPosition != null) {
-                neighbors.add(nextPosition);
+    /**
+     * Drops this thread's node store and heaps if the last search grew them past RETAINED_CAPACITY, so that one
+     * search near the expansion cap doesn't leave every pool thread it ran on holding tens of megabytes.
+     * The next search on the thread starts again from the initial size.
+     */
+    @SafeVarargs
+    static void release(ThreadLocal<NodeStore> workspace, ThreadLocal<IndexedHeap>... heaps) {
+        if (workspace.get().capacity() > RETAINED_CAPACITY) {
+            workspace.remove();
+        }
+        for (ThreadLocal<IndexedHeap> heap : heaps) {
+            if (heap.get().capacity() > RETAINED_CAPACITY) {
+                heap.remove();
             }
         }
-        return neighbors;
     }
 
-    private List<Position> reconstructPath(Node currentNode) {
+    // Straight-line distance from a point to the end, in degrees
+    private double distanceToEnd(double lng, double lat) {
+        double dLng = lng - end.lng();
+        double dLat = lat - end.lat();
+        return Math.sqrt(dLng * dLng + dLat * dLat);
+    }
+
+    private List<Position> reconstructPath(NodeStore nodes, int currentNode) {
         List<Position> path = new ArrayList<>();
-        while (currentNode != null) {
-            path.add(currentNode.getPosition());
-            currentNode = currentNode.getParent();
+        while (currentNode != NodeStore.NONE) {
+            path.add(nodes.position(currentNode));
+            currentNode = nodes.parent(currentNode);
         }
         Collections.reverse(path);
         return path;
     }
-
-    private boolean isInsideNoFlyZone(Position position) {
-        for (nameData.NamedRegion noFlyZone : noFlyZones) {
-            if (lngLatAPI.isPointInRegion(position, noFlyZone)) {
-                return true;
-            }
-        }
-        return false;
-    }
 }
-
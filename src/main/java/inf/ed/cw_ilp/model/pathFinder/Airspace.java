@@ -0,0 +1,169 @@
+package inf.ed.cw_ilp.model.pathFinder;
+
+import inf.ed.cw_ilp.model.Regions.Position;
+import inf.ed.cw_ilp.utils.Constants;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Airspace is the compiled form of the central area and the no-fly zones that the searches run against.
+ * It is built once per data refresh and shared by every search until the region data changes.
+ * The version is a hash of the region data, so two compilations of the same data have the same version.
+ */
+public class Airspace {
+
+    private final nameData.NamedRegion centralArea;
+    private final List<nameData.NamedRegion> noFlyZones;
+    private final OccupancyGrid centralGrid;
+    private final OccupancyGrid noFlyGrid;
+    private final EdgeIndex noFlyEdges;
+    private final long version;
+
+    // Structures derived from this airspace (visibility graph, ...), built on first use and dropped with it
+    private final Map<Class<?>, Object> derived = new ConcurrentHashMap<>();
+
+    private Airspace(nameData.NamedRegion centralArea, List<nameData.NamedRegion> noFlyZones, long version) {
+        this.centralArea = centralArea;
+        this.noFlyZones = List.copyOf(noFlyZones);
+        this.centralGrid = OccupancyGrid.compile(List.of(centralArea), Constants.APPLETON_TOWER);
+        this.noFlyGrid = OccupancyGrid.compile(this.noFlyZones, Constants.APPLETON_TOWER);
+        this.noFlyEdges = EdgeIndex.build(this.noFlyZones);
+        this.version = version;
+    }
+
+    public static Airspace compile(nameData.NamedRegion centralArea, List<nameData.NamedRegion> noFlyZones) {
+        return new Airspace(centralArea, noFlyZones, versionOf(centralArea, noFlyZones));
+    }
+
+    // Content hash of the region data: names and every vertex coordinate, in order
+    public static long versionOf(nameData.NamedRegion centralArea, List<nameData.NamedRegion> noFlyZones) {
+        long hash = 0xCBF29CE484222325L;
+        hash = mix(hash, centralArea);
+        for (nameData.NamedRegion zone : noFlyZones) {
+            hash = mix(hash, zone);
+        }
+        return hash;
+    }
+
+    public nameData.NamedRegion getCentralArea() {
+        return centralArea;
+    }
+
+    public List<nameData.NamedRegion> getNoFlyZones() {
+        return noFlyZones;
+    }
+
+    public long version() {
+        return version;
+    }
+
+    // Returns the structure of the given type built from this airspace, building it the first time it is asked for
+    public <T> T derived(Class<T> type, Function<Airspace, T> builder) {
+        Object existing = derived.get(type);
+        if (existing == null) {
+            // Built outside the map so a builder may itself ask for other derived structures
+            existing = builder.apply(this);
+            Object raced = derived.putIfAbsent(type, existing);
+            if (raced != null) {
+                existing = raced;
+            }
+        }
+        return type.cast(existing);
+    }
+
+    // The derived structure of the given type if it has been built already, otherwise null
+    public <T> T derivedIfBuilt(Class<T> type) {
+        return type.cast(derived.get(type));
+    }
+
+    public boolean isNoFly(double lng, double lat) {
+        return noFlyGrid.contains(lng, lat);
+    }
+
+    public boolean isInCentralArea(double lng, double lat) {
+        return centralGrid.contains(lng, lat);
+    }
+
+    // True if the straight move between the points passes through a no-fly zone edge, ends included
+    public boolean crossesNoFlyEdge(double fromLng, double fromLat, double toLng, double toLat) {
+        // Away from every edge a move can't reach one, which settles most moves with a single bit lookup
+        return noFlyGrid.isNearEdge(fromLng, fromLat) && noFlyEdges.crosses(fromLng, fromLat, toLng, toLat);
+    }
+
+    // True if the move ends in a no-fly zone or clips one on the way, so it is never allowed
+    public boolean isNoFlyMove(double fromLng, double fromLat, double toLng, double toLat) {
+        return isNoFly(toLng, toLat) || crossesNoFlyEdge(fromLng, fromLat, toLng, toLat);
+    }
+
+    // Batch forms of isNoFly and isInCentralArea: set out[i] for every one of the first count points that is inside
+    public void markNoFly(double[] lng, double[] lat, int count, boolean[] out) {
+        noFlyGrid.markContained(lng, lat, count, out);
+    }
+
+    public void markInCentralArea(double[] lng, double[] lat, int count, boolean[] out) {
+        centralGrid.markContained(lng, lat, count, out);
+    }
+
+    // True if a move from this point could cross a no-fly zone or central area edge
+    public boolean isNearEdge(double lng, double lat) {
+        return noFlyGrid.isNearEdge(lng, lat) || centralGrid.isNearEdge(lng, lat);
+    }
+
+    /**
+     * Bounding box {minLng, minLat, maxLng, maxLat} of every region that is in only one of the two airspaces,
+     * or null if they hold the same regions. Outside it a point has the same status in both.
+     */
+    public double[] changedBounds(Airspace other) {
+        List<nameData.NamedRegion> mine = new ArrayList<>(noFlyZones);
+        mine.add(centralArea);
+        List<nameData.NamedRegion> theirs = new ArrayList<>(other.noFlyZones);
+        theirs.add(other.centralArea);
+
+        Set<Long> myHashes = new HashSet<>();
+        Set<Long> theirHashes = new HashSet<>();
+        mine.forEach(region -> myHashes.add(mix(0, region)));
+        theirs.forEach(region -> theirHashes.add(mix(0, region)));
+
+        double[] bounds = null;
+        for (nameData.NamedRegion region : mine) {
+            if (!theirHashes.contains(mix(0, region))) bounds = extend(bounds, region);
+        }
+        for (nameData.NamedRegion region : theirs) {
+            if (!myHashes.contains(mix(0, region))) bounds = extend(bounds, region);
+        }
+        return bounds;
+    }
+
+    private static double[] extend(double[] bounds, nameData.NamedRegion region) {
+        if (region.getCoordinates() == null) {
+            return bounds;
+        }
+        if (bounds == null) {
+            bounds = new double[] {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        }
+        for (Position vertex : region.getCoordinates()) {
+            bounds[0] = Math.min(bounds[0], vertex.lng());
+            bounds[1] = Math.min(bounds[1], vertex.lat());
+            bounds[2] = Math.max(bounds[2], vertex.lng());
+            bounds[3] = Math.max(bounds[3], vertex.lat());
+        }
+        return bounds;
+    }
+
+    private static long mix(long hash, nameData.NamedRegion region) {
+        hash = (hash ^ (region.name == null ? 0 : region.name.hashCode())) * 0x100000001B3L;
+        if (region.getCoordinates() != null) {
+            for (Position vertex : region.getCoordinates()) {
+                hash = (hash ^ Double.doubleToLongBits(vertex.lng())) * 0x100000001B3L;
+                hash = (hash ^ Double.doubleToLongBits(vertex.lat())) * 0x100000001B3L;
+            }
+        }
+        return hash;
+    }
+}
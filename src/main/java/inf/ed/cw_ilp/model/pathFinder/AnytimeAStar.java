@@ -0,0 +1,235 @@
+package inf.ed.cw_ilp.model.pathFinder;
+
+import inf.ed.cw_ilp.model.Regions.Position;
+import inf.ed.cw_ilp.utils.Constants;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * AnytimeAStar is Anytime Repairing A* (ARA*). It first runs weighted A* with the heuristic inflated by
+ * INITIAL_EPSILON, which finds a path quickly, and then keeps lowering epsilon and repairing that search
+ * until epsilon reaches 1 or the time budget runs out. Each pass only re-expands states whose cost
+ * improved in the pass before, so tightening the bound is much cheaper than starting again.
+ *
+ * The first path is always completed, even past the time budget; after that the best path found so far
+ * is returned, and suboptimalityBound() tells how far from the shortest it can be. The same goes for the
+ * search budget: once there is a path, running out of it ends the tightening rather than losing the path.
+ */
+public class AnytimeAStar implements PathFinder {
+
+    private static final double INITIAL_EPSILON = 2.5;
+    private static final double EPSILON_STEP = 0.5;
+
+    // The clock is only read every this many expansions
+    private static final int DEADLINE_CHECK_INTERVAL = 256;
+
+    private final Position start;
+    private final Position end;
+    private final Airspace airspace;
+    private final Duration timeBudget;
+    private final SearchBudget budget;
+
+    private long deadline;
+    private double suboptimalityBound = Double.NaN;
+
+    // Goal state with the lowest cost found so far in the current search
+    private int goalNode;
+    private double goalCost;
+
+    private static final ThreadLocal<NodeStore> WORKSPACE = ThreadLocal.withInitial(() -> new NodeStore(1 << 12));
+    private static final ThreadLocal<IndexedHeap> OPEN_SET = ThreadLocal.withInitial(() -> new IndexedHeap(1 << 12));
+    // Closed states whose cost improved during a pass; they are re-opened for the next one
+    private static final ThreadLocal<IndexedHeap> INCONSISTENT = ThreadLocal.withInitial(() -> new IndexedHeap(1 << 10));
+
+    public AnytimeAStar(Position start, Position end, Airspace airspace, Duration timeBudget) {
+        this(start, end, airspace, timeBudget, SearchBudget.standard());
+    }
+
+    // The time budget only limits the tightening; the search budget is a hard limit on the whole search
+    public AnytimeAStar(Position start, Position end, Airspace airspace, Duration timeBudget, SearchBudget budget) {
+        this.start = start;
+        this.end = end;
+        this.airspace = airspace;
+        this.timeBudget = timeBudget;
+        this.budget = budget;
+    }
+
+    @Override
+    public List<Position> calculatePath() {
+        deadline = System.nanoTime() + timeBudget.toNanos();
+
+        // No corridor here: the inflated first pass already finds a path quickly, and a corridor would make
+        // every bound relative to the corridor rather than the whole airspace
+        try {
+            return search(WORKSPACE.get(), OPEN_SET.get(), INCONSISTENT.get());
+        } finally {
+            A_Star.release(WORKSPACE, OPEN_SET, INCONSISTENT);
+        }
+    }
+
+    // The bound on path cost over the optimum that the returned path is known to meet, NaN before a path is found
+    @Override
+    public double suboptimalityBound() {
+        return suboptimalityBound;
+    }
+
+    private List<Position> search(NodeStore nodes, IndexedHeap openSet, IndexedHeap inconsistent) {
+        nodes.reset(start);
+        openSet.clear();
+        inconsistent.clear();
+        goalNode = NodeStore.NONE;
+        goalCost = Double.POSITIVE_INFINITY;
+        suboptimalityBound = Double.NaN;
+
+        double epsilon = INITIAL_EPSILON;
+        int startNode = nodes.add(start.lng(), start.lat(), 0, epsilon * heuristic(start.lng(), start.lat()), NodeStore.NONE);
+        openSet.push(startNode, nodes.finalCost(startNode));
+        recordIfGoal(nodes, startNode);
+
+        double bound = Double.POSITIVE_INFINITY;
+        while (true) {
+            boolean finished = improvePath(nodes, openSet, inconsistent, epsilon);
+            if (goalNode == NodeStore.NONE) {
+                return new ArrayList<>(); // No valid path found
+            }
+
+            // Any state that could still lead to a cheaper path is open or inconsistent
+            double reached = goalCost / lowestUninflatedCost(nodes, openSet, inconsistent);
+            if (finished) {
+                reached = Math.min(reached, epsilon);
+            }
+            bound = Math.max(1, Math.min(bound, reached));
+            suboptimalityBound = bound;
+
+            if (!finished || epsilon <= 1 || System.nanoTime() >= deadline) {
+                return reconstructPath(nodes, goalNode);
+            }
+            epsilon = Math.max(1, epsilon - EPSILON_STEP);
+            reopen(nodes, openSet, inconsistent, epsilon);
+        }
+    }
+
+    /**
+     * One weighted A* pass. Returns false if the time budget, or the search budget, ran out before the pass
+     * finished once a first path exists; the best path so far is then kept. Without a path yet the search
+     * budget running out aborts the search.
+     */
+    private boolean improvePath(NodeStore nodes, IndexedHeap openSet, IndexedHeap inconsistent, double epsilon) {
+        int expansions = 0;
+        while (!openSet.isEmpty() && openSet.peekKey() < goalCost) {
+            if (++expansions % DEADLINE_CHECK_INTERVAL == 0 && goalNode != NodeStore.NONE && System.nanoTime() >= deadline) {
+                return false;
+            }
+
+            // Counted before the state leaves the open set, so a pass cut short here leaves it there for the bound
+            try {
+                budget.expand();
+            } catch (SearchAbortedException e) {
+                if (goalNode == NodeStore.NONE) {
+                    throw e;
+                }
+                return false;
+            }
+            int currentNode = openSet.pop();
+            nodes.close(currentNode);
+            double currentLng = nodes.lng(currentNode);
+            double currentLat = nodes.lat(currentNode);
+
+            // Once this route has entered the central area it may not leave it again
+            boolean inCentralArea = airspace.isInCentralArea(currentLng, currentLat);
+
+            double newG = nodes.startCost(currentNode) + Constants.MOVE_DISTANCE;
+            for (int direction = 0; direction < MoveTable.DIRECTIONS; direction++) {
+                double neighborLng = currentLng + MoveTable.dLng(direction);
+                double neighborLat = currentLat + MoveTable.dLat(direction);
+
+                int neighborNode = nodes.find(neighborLng, neighborLat);
+                if (neighborNode != NodeStore.NONE && newG >= nodes.startCost(neighborNode)) continue;
+
+                if (airspace.isNoFlyMove(currentLng, currentLat, neighborLng, neighborLat)) continue;
+                if (inCentralArea && !airspace.isInCentralArea(neighborLng, neighborLat)) continue;
+
+                if (!budget.allowsRoute(newG, distance(neighborLng, neighborLat))) continue;
+
+                double newF = newG + epsilon * heuristic(neighborLng, neighborLat);
+                if (neighborNode == NodeStore.NONE) {
+                    neighborNode = nodes.add(neighborLng, neighborLat, newG, newF, currentNode);
+                } else {
+                    nodes.update(neighborNode, currentNode, newG, newF);
+                }
+
+                // A state closed in this pass is not expanded again until the next one
+                if (nodes.isClosed(neighborNode)) {
+                    if (!inconsistent.contains(neighborNode)) {
+                        inconsistent.push(neighborNode, newG);
+                    }
+                } else {
+                    openSet.pushOrDecrease(neighborNode, newF);
+                }
+                recordIfGoal(nodes, neighborNode);
+            }
+        }
+        return true;
+    }
+
+    // Moves the inconsistent states back into the open set and re-keys everything for the new epsilon
+    private void reopen(NodeStore nodes, IndexedHeap openSet, IndexedHeap inconsistent, double epsilon) {
+        int[] pending = new int[openSet.size() + inconsistent.size()];
+        int count = 0;
+        while (!openSet.isEmpty()) {
+            pending[count++] = openSet.pop();
+        }
+        while (!inconsistent.isEmpty()) {
+            pending[count++] = inconsistent.pop();
+        }
+        nodes.reopenAll();
+        for (int i = 0; i < count; i++) {
+            int node = pending[i];
+            double f = nodes.startCost(node) + epsilon * heuristic(nodes.lng(node), nodes.lat(node));
+            nodes.update(node, nodes.parent(node), nodes.startCost(node), f);
+            openSet.push(node, f);
+        }
+    }
+
+    // Smallest g + h over the states that could still improve the path; no such state means the path is optimal
+    private double lowestUninflatedCost(NodeStore nodes, IndexedHeap openSet, IndexedHeap inconsistent) {
+        double lowest = goalCost;
+        for (int node = 0; node < nodes.size(); node++) {
+            if (openSet.contains(node) || inconsistent.contains(node)) {
+                lowest = Math.min(lowest, nodes.startCost(node) + heuristic(nodes.lng(node), nodes.lat(node)));
+            }
+        }
+        return lowest;
+    }
+
+    private void recordIfGoal(NodeStore nodes, int node) {
+        if (nodes.startCost(node) < goalCost && distance(nodes.lng(node), nodes.lat(node)) <= Constants.CLOSE_DISTANCE) {
+            goalNode = node;
+            goalCost = nodes.startCost(node);
+        }
+    }
+
+    // Lower bound on the cost to get within CLOSE_DISTANCE of the end, zero for goal states
+    private double heuristic(double lng, double lat) {
+        return Math.max(0, distance(lng, lat) - Constants.CLOSE_DISTANCE);
+    }
+
+    private double distance(double lng, double lat) {
+        double dLng = lng - end.lng();
+        double dLat = lat - end.lat();
+        return Math.sqrt(dLng * dLng + dLat * dLat);
+    }
+
+    private List<Position> reconstructPath(NodeStore nodes, int currentNode) {
+        List<Position> path = new ArrayList<>();
+        while (currentNode != NodeStore.NONE) {
+            path.add(nodes.position(currentNode));
+            currentNode = nodes.parent(currentNode);
+        }
+        Collections.reverse(path);
+        return path;
+    }
+}
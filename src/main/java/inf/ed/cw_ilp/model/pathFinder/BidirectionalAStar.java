@@ -0,0 +1,390 @@
+package inf.ed.cw_ilp.model.pathFinder;
+
+import inf.ed.cw_ilp.model.Regions.Position;
+import inf.ed.cw_ilp.utils.Constants;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * BidirectionalAStar runs A* forwards from the start and backwards from the end at the same time.
+ * The backward search follows the same moves in reverse: a predecessor is one move behind a state,
+ * and the central-area rule is checked on the forward move it stands for.
+ *
+ * The drone only has to get within CLOSE_DISTANCE of the end, so the two searches meet whenever a forward
+ * and a backward state are within CLOSE_DISTANCE of each other. The path is then the forward route to the
+ * forward state followed by the backward route replayed from there; the replayed tail is shifted by at most
+ * CLOSE_DISTANCE, so it is re-checked against the airspace before a meeting is accepted.
+ *
+ * Both sides use the average potential (distance to the end minus distance to the start, halved, with the sign
+ * flipped for the backward side), so they run as one bidirectional Dijkstra on the same reduced costs.
+ * That lets the search stop as soon as the two cheapest open keys add up to the best meeting cost;
+ * plain per-side A* keys would each have to cover the whole f < C* region. A meeting pair can be up to
+ * CLOSE_DISTANCE apart, which can move the potential by as much, so that much slack is added to the stop test.
+ */
+public class BidirectionalAStar implements PathFinder {
+
+    private final Position start;
+    private final Position end;
+    private final Airspace airspace;
+    private final SearchBudget budget;
+
+    // Best meeting so far: its cost and the forward and backward states that met
+    private double bestCost;
+    private int meetingForward;
+    private int meetingBackward;
+
+    // Whether the last path came from a corridor search rather than the whole lattice
+    private boolean withinCorridor;
+
+    // One frontier per direction, reused by every search on the same thread
+    private static final ThreadLocal<Frontier> FORWARD = ThreadLocal.withInitial(Frontier::new);
+    private static final ThreadLocal<Frontier> BACKWARD = ThreadLocal.withInitial(Frontier::new);
+
+    public BidirectionalAStar(Position start, Position end, Airspace airspace) {
+        this(start, end, airspace, SearchBudget.standard());
+    }
+
+    public BidirectionalAStar(Position start, Position end, Airspace airspace, SearchBudget budget) {
+        this.start = start;
+        this.end = end;
+        this.airspace = airspace;
+        this.budget = budget;
+    }
+
+    @Override
+    public List<Position> calculatePath() {
+        // Long deliveries get the same visibility-graph corridor as A_Star
+        Corridor.Outcome outcome = Corridor.searchFirst(start, end, airspace, this::search);
+        withinCorridor = outcome.withinCorridor();
+        return outcome.path();
+    }
+
+    // A path found inside the corridor is only the shortest there, so no bound is claimed for it
+    @Override
+    public double suboptimalityBound() {
+        return withinCorridor ? Double.NaN : 1;
+    }
+
+    private List<Position> search(Corridor corridor) {
+        try {
+            return search(corridor, FORWARD.get(), BACKWARD.get());
+        } finally {
+            // As in A_Star, a frontier that one long search grew is not kept by the thread
+            if (FORWARD.get().isOversized()) {
+                FORWARD.remove();
+            }
+            if (BACKWARD.get().isOversized()) {
+                BACKWARD.remove();
+            }
+        }
+    }
+
+    private List<Position> search(Corridor corridor, Frontier forward, Frontier backward) {
+        forward.reset(start);
+        backward.reset(end);
+        bestCost = Double.POSITIVE_INFINITY;
+        meetingForward = NodeStore.NONE;
+        meetingBackward = NodeStore.NONE;
+
+        int startNode = forward.open(start.lng(), start.lat(), potential(start.lng(), start.lat()));
+        backward.open(end.lng(), end.lat(), -potential(end.lng(), end.lat()));
+        checkMeeting(forward, backward, startNode, true);
+
+        while (!forward.openSet.isEmpty() && !backward.openSet.isEmpty()) {
+            double forwardKey = forward.openSet.peekKey();
+            double backwardKey = backward.openSet.peekKey();
+            if (forwardKey + backwardKey >= bestCost + Constants.CLOSE_DISTANCE) {
+                break;
+            }
+            // Expand whichever side has the cheaper key, which keeps the two frontiers about the same size
+            if (forwardKey <= backwardKey) {
+                expandForward(forward, backward, corridor);
+            } else {
+                expandBackward(forward, backward, corridor);
+            }
+        }
+
+        if (meetingForward == NodeStore.NONE) {
+            return new ArrayList<>(); // No valid path found
+        }
+        return joinPath(forward.nodes, backward.nodes, meetingForward, meetingBackward);
+    }
+
+    private void expandForward(Frontier forward, Frontier backward, Corridor corridor) {
+        NodeStore nodes = forward.nodes;
+        int currentNode = forward.openSet.pop();
+        nodes.close(currentNode);
+        budget.expand();
+        double currentLng = nodes.lng(currentNode);
+        double currentLat = nodes.lat(currentNode);
+
+        // Once this route has entered the central area it may not leave it again
+        boolean inCentralArea = airspace.isInCentralArea(currentLng, currentLat);
+
+        double newG = nodes.startCost(currentNode) + Constants.MOVE_DISTANCE;
+        if (!budget.allowsCost(newG)) return;
+
+        for (int direction = 0; direction < MoveTable.DIRECTIONS; direction++) {
+            double neighborLng = currentLng + MoveTable.dLng(direction);
+            double neighborLat = currentLat + MoveTable.dLat(direction);
+
+            if (corridor != null && !corridor.contains(neighborLng, neighborLat)) continue;
+
+            int neighborNode = nodes.find(neighborLng, neighborLat);
+            if (neighborNode != NodeStore.NONE && (nodes.isClosed(neighborNode) || newG >= nodes.startCost(neighborNode))) {
+                continue;
+            }
+
+            if (airspace.isNoFlyMove(currentLng, currentLat, neighborLng, neighborLat)) continue;
+            if (inCentralArea && !airspace.isInCentralArea(neighborLng, neighborLat)) continue;
+
+            neighborNode = forward.relax(neighborNode, neighborLng, neighborLat, currentNode, direction, newG,
+                    newG + potential(neighborLng, neighborLat));
+            checkMeeting(forward, backward, neighborNode, true);
+        }
+    }
+
+    private void expandBackward(Frontier forward, Frontier backward, Corridor corridor) {
+        NodeStore nodes = backward.nodes;
+        int currentNode = backward.openSet.pop();
+        nodes.close(currentNode);
+        budget.expand();
+        double currentLng = nodes.lng(currentNode);
+        double currentLat = nodes.lat(currentNode);
+        boolean currentInCentralArea = airspace.isInCentralArea(currentLng, currentLat);
+
+        double newG = nodes.startCost(currentNode) + Constants.MOVE_DISTANCE;
+        if (!budget.allowsCost(newG)) return;
+
+        for (int direction = 0; direction < MoveTable.DIRECTIONS; direction++) {
+            // The predecessor that reaches the current state by moving in this direction
+            double predecessorLng = currentLng - MoveTable.dLng(direction);
+            double predecessorLat = currentLat - MoveTable.dLat(direction);
+
+            if (corridor != null && !corridor.contains(predecessorLng, predecessorLat)) continue;
+
+            int predecessorNode = nodes.find(predecessorLng, predecessorLat);
+            if (predecessorNode != NodeStore.NONE && (nodes.isClosed(predecessorNode) || newG >= nodes.startCost(predecessorNode))) {
+                continue;
+            }
+
+            if (airspace.isNoFly(predecessorLng, predecessorLat)
+                    || airspace.crossesNoFlyEdge(predecessorLng, predecessorLat, currentLng, currentLat)) continue;
+            // The forward move may not leave the central area
+            if (!currentInCentralArea && airspace.isInCentralArea(predecessorLng, predecessorLat)) continue;
+
+            predecessorNode = backward.relax(predecessorNode, predecessorLng, predecessorLat, currentNode, direction, newG,
+                    newG - potential(predecessorLng, predecessorLat));
+            checkMeeting(forward, backward, predecessorNode, false);
+        }
+    }
+
+    // Pairs a newly reached state with every state of the other side within CLOSE_DISTANCE of it
+    private void checkMeeting(Frontier forward, Frontier backward, int node, boolean fromForward) {
+        Frontier own = fromForward ? forward : backward;
+        Frontier other = fromForward ? backward : forward;
+        double lng = own.nodes.lng(node);
+        double lat = own.nodes.lat(node);
+        double g = own.nodes.startCost(node);
+
+        int column = CellIndex.cell(lng);
+        int row = CellIndex.cell(lat);
+        for (int r = row - 1; r <= row + 1; r++) {
+            for (int c = column - 1; c <= column + 1; c++) {
+                for (int candidate = other.cells.first(c, r); candidate != NodeStore.NONE; candidate = other.cells.next(candidate)) {
+                    double cost = g + other.nodes.startCost(candidate);
+                    if (cost >= bestCost || !budget.allowsCost(cost)) continue;
+
+                    double dLng = other.nodes.lng(candidate) - lng;
+                    double dLat = other.nodes.lat(candidate) - lat;
+                    if (Math.sqrt(dLng * dLng + dLat * dLat) > Constants.CLOSE_DISTANCE) continue;
+
+                    int forwardNode = fromForward ? node : candidate;
+                    int backwardNode = fromForward ? candidate : node;
+                    if (tailIsLegal(forward.nodes, backward.nodes, forwardNode, backwardNode)) {
+                        bestCost = cost;
+                        meetingForward = forwardNode;
+                        meetingBackward = backwardNode;
+                    }
+                }
+            }
+        }
+    }
+
+    // Replays the backward route from the forward state and checks every move against the airspace
+    private boolean tailIsLegal(NodeStore forwardNodes, NodeStore backwardNodes, int forwardNode, int backwardNode) {
+        double lng = forwardNodes.lng(forwardNode);
+        double lat = forwardNodes.lat(forwardNode);
+        boolean inCentralArea = airspace.isInCentralArea(lng, lat);
+        for (int node = backwardNode; backwardNodes.parent(node) != NodeStore.NONE; node = backwardNodes.parent(node)) {
+            double nextLng = lng + MoveTable.dLng(backwardNodes.direction(node));
+            double nextLat = lat + MoveTable.dLat(backwardNodes.direction(node));
+            if (airspace.isNoFlyMove(lng, lat, nextLng, nextLat)) {
+                return false;
+            }
+            lng = nextLng;
+            lat = nextLat;
+            boolean nextInCentralArea = airspace.isInCentralArea(lng, lat);
+            if (inCentralArea && !nextInCentralArea) {
+                return false;
+            }
+            inCentralArea = nextInCentralArea;
+        }
+        return true;
+    }
+
+    private List<Position> joinPath(NodeStore forwardNodes, NodeStore backwardNodes, int forwardNode, int backwardNode) {
+        List<Position> path = new ArrayList<>();
+        for (int node = forwardNode; node != NodeStore.NONE; node = forwardNodes.parent(node)) {
+            path.add(forwardNodes.position(node));
+        }
+        Collections.reverse(path);
+
+        double lng = forwardNodes.lng(forwardNode);
+        double lat = forwardNodes.lat(forwardNode);
+        for (int node = backwardNode; backwardNodes.parent(node) != NodeStore.NONE; node = backwardNodes.parent(node)) {
+            lng += MoveTable.dLng(backwardNodes.direction(node));
+            lat += MoveTable.dLat(backwardNodes.direction(node));
+            path.add(new Position(lng, lat));
+        }
+        return path;
+    }
+
+    // Forward potential of a point; the backward side uses its negation
+    private double potential(double lng, double lat) {
+        return (distance(lng, lat, end) - distance(lng, lat, start)) / 2;
+    }
+
+    private static double distance(double lng, double lat, Position to) {
+        double dLng = lng - to.lng();
+        double dLat = lat - to.lat();
+        return Math.sqrt(dLng * dLng + dLat * dLat);
+    }
+
+    // The states, open list and meeting index of one search direction
+    private static final class Frontier {
+        final NodeStore nodes = new NodeStore(1 << 12);
+        final IndexedHeap openSet = new IndexedHeap(1 << 12);
+        final CellIndex cells = new CellIndex();
+
+        boolean isOversized() {
+            return nodes.capacity() > A_Star.RETAINED_CAPACITY || openSet.capacity() > A_Star.RETAINED_CAPACITY;
+        }
+
+        void reset(Position origin) {
+            nodes.reset(origin);
+            openSet.clear();
+            cells.clear();
+        }
+
+        int open(double lng, double lat, double heuristic) {
+            int node = nodes.add(lng, lat, 0, heuristic, NodeStore.NONE);
+            cells.add(node, lng, lat);
+            openSet.push(node, heuristic);
+            return node;
+        }
+
+        // Adds the state or records the cheaper route to it, and returns its index
+        int relax(int node, double lng, double lat, int parent, int direction, double g, double f) {
+            if (node == NodeStore.NONE) {
+                node = nodes.add(lng, lat, g, f, parent);
+                cells.add(node, lng, lat);
+            } else {
+                nodes.update(node, parent, g, f);
+            }
+            nodes.setDirection(node, direction);
+            openSet.pushOrDecrease(node, f);
+            return node;
+        }
+    }
+
+    /**
+     * Spatial hash from CLOSE_DISTANCE-sized cells to the states inside them, chained through next[].
+     * A point's meeting partners all lie in its own cell or one of the eight around it.
+     */
+    private static final class CellIndex {
+
+        private static final int EMPTY_SLOT = -1;
+
+        private long[] keys = new long[1 << 10];
+        private int[] heads = new int[1 << 10];
+        private int[] next = new int[1 << 12];
+        private int used;
+
+        CellIndex() {
+            Arrays.fill(heads, EMPTY_SLOT);
+        }
+
+        static int cell(double coordinate) {
+            return (int) Math.floor(coordinate / Constants.CLOSE_DISTANCE);
+        }
+
+        void clear() {
+            if (used > 0) {
+                Arrays.fill(heads, EMPTY_SLOT);
+                used = 0;
+            }
+        }
+
+        void add(int node, double lng, double lat) {
+            if (node >= next.length) {
+                next = Arrays.copyOf(next, Math.max(node + 1, next.length * 2));
+            }
+            if ((used + 1) * 2 > keys.length) {
+                rehash();
+            }
+            long key = key(cell(lng), cell(lat));
+            int slot = slotFor(key);
+            if (heads[slot] == EMPTY_SLOT) {
+                keys[slot] = key;
+                used++;
+                next[node] = NodeStore.NONE;
+            } else {
+                next[node] = heads[slot];
+            }
+            heads[slot] = node;
+        }
+
+        int first(int column, int row) {
+            long key = key(column, row);
+            int slot = slotFor(key);
+            return heads[slot] == EMPTY_SLOT ? NodeStore.NONE : heads[slot];
+        }
+
+        int next(int node) {
+            return next[node];
+        }
+
+        // Slot holding the key, or the empty slot where it would go
+        private int slotFor(long key) {
+            int mask = keys.length - 1;
+            int slot = (int) (key ^ (key >>> 29)) * 0x9E3779B9 & mask;
+            while (heads[slot] != EMPTY_SLOT && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private void rehash() {
+            long[] oldKeys = keys;
+            int[] oldHeads = heads;
+            keys = new long[oldKeys.length * 2];
+            heads = new int[oldHeads.length * 2];
+            Arrays.fill(heads, EMPTY_SLOT);
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldHeads[i] != EMPTY_SLOT) {
+                    int slot = slotFor(oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    heads[slot] = oldHeads[i];
+                }
+            }
+        }
+
+        private static long key(int column, int row) {
+            return ((long) column << 32) | (row & 0xFFFFFFFFL);
+        }
+    }
+}
@@ -0,0 +1,357 @@
+package inf.ed.cw_ilp.model.pathFinder;
+
+import inf.ed.cw_ilp.model.Regions.Position;
+import inf.ed.cw_ilp.utils.Constants;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * ClusterGraph is the abstract graph for hierarchical path finding (HPA*).
+ * The area round the regions is cut into move-sized cells grouped in square clusters of CLUSTER_CELLS.
+ * Entrances are picked along every free stretch of border between two neighbouring clusters, and the
+ * cost between the entrances of one cluster is worked out once, with a Dijkstra over its cells.
+ * A query only connects the start and end to the entrances of their own clusters and searches this
+ * small graph, so its cost hardly depends on how large the area is or how many zones there are.
+ *
+ * Cells follow the same rules as the drone: a cell whose centre is in a no-fly zone is blocked, and
+ * no step may go from a cell in the central area to one outside it, so the costs are directed.
+ * It is built once per Airspace.
+ */
+public class ClusterGraph {
+
+    private static final int CLUSTER_CELLS = 20;
+
+    // Free border stretches longer than this get an entrance at both ends instead of one in the middle
+    private static final int LONG_ENTRANCE = 6;
+
+    // Cells reach this far past the regions, far enough to cover the restaurants round them
+    private static final double MARGIN = 0.02;
+
+    private static final double DIAGONAL = Math.sqrt(2);
+    private static final int[] STEP_COLUMN = {1, 1, 0, -1, -1, -1, 0, 1};
+    private static final int[] STEP_ROW = {0, 1, 1, 1, 0, -1, -1, -1};
+
+    private record Edge(int to, double cost) {}
+
+    private final double originLng;
+    private final double originLat;
+    private final double cellSize = Constants.MOVE_DISTANCE;
+    private final int columns;
+    private final int rows;
+    private final int clusterColumns;
+    private final int clusterRows;
+    private final BitSet blocked;
+    private final BitSet central;
+
+    // Abstract nodes: the cell each one sits on, and its outgoing edges
+    private final int[] nodeCell;
+    private final int[][] edgeTarget;
+    private final double[][] edgeCost;
+    private final int[][] clusterNodes;
+
+    private ClusterGraph(Airspace airspace, double minLng, double minLat, double maxLng, double maxLat) {
+        originLng = minLng;
+        originLat = minLat;
+        clusterColumns = (int) Math.ceil((maxLng - minLng) / (cellSize * CLUSTER_CELLS));
+        clusterRows = (int) Math.ceil((maxLat - minLat) / (cellSize * CLUSTER_CELLS));
+        columns = clusterColumns * CLUSTER_CELLS;
+        rows = clusterRows * CLUSTER_CELLS;
+
+        blocked = new BitSet(columns * rows);
+        central = new BitSet(columns * rows);
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                double lng = cellLng(column), lat = cellLat(row);
+                if (airspace.isNoFly(lng, lat)) {
+                    blocked.set(row * columns + column);
+                } else if (airspace.isInCentralArea(lng, lat)) {
+                    central.set(row * columns + column);
+                }
+            }
+        }
+
+        // Entrances come in pairs of cells facing each other across a border
+        List<Integer> cells = new ArrayList<>();
+        List<List<Edge>> edges = new ArrayList<>();
+        for (int clusterRow = 0; clusterRow < clusterRows; clusterRow++) {
+            for (int clusterColumn = 0; clusterColumn < clusterColumns; clusterColumn++) {
+                if (clusterColumn + 1 < clusterColumns) {
+                    int column = (clusterColumn + 1) * CLUSTER_CELLS;
+                    addEntrances(cells, edges, column - 1, clusterRow * CLUSTER_CELLS, 1, 0, 0, 1);
+                }
+                if (clusterRow + 1 < clusterRows) {
+                    int row = (clusterRow + 1) * CLUSTER_CELLS;
+                    addEntrances(cells, edges, clusterColumn * CLUSTER_CELLS, row - 1, 0, 1, 1, 0);
+                }
+            }
+        }
+
+        nodeCell = cells.stream().mapToInt(Integer::intValue).toArray();
+        List<List<Integer>> byCluster = new ArrayList<>();
+        for (int i = 0; i < clusterColumns * clusterRows; i++) {
+            byCluster.add(new ArrayList<>());
+        }
+        for (int node = 0; node < nodeCell.length; node++) {
+            byCluster.get(clusterOf(nodeCell[node])).add(node);
+        }
+        clusterNodes = new int[byCluster.size()][];
+        for (int i = 0; i < clusterNodes.length; i++) {
+            clusterNodes[i] = byCluster.get(i).stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        // Intra-cluster edges from one Dijkstra per entrance
+        for (int[] nodes : clusterNodes) {
+            for (int from : nodes) {
+                double[] cost = clusterDijkstra(nodeCell[from], false);
+                for (int to : nodes) {
+                    double c = cost[localIndex(nodeCell[to])];
+                    if (to != from && c < Double.POSITIVE_INFINITY) {
+                        edges.get(from).add(new Edge(to, c));
+                    }
+                }
+            }
+        }
+
+        edgeTarget = new int[nodeCell.length][];
+        edgeCost = new double[nodeCell.length][];
+        for (int node = 0; node < nodeCell.length; node++) {
+            List<Edge> out = edges.get(node);
+            edgeTarget[node] = out.stream().mapToInt(Edge::to).toArray();
+            edgeCost[node] = out.stream().mapToDouble(Edge::cost).toArray();
+        }
+    }
+
+    public static ClusterGraph forAirspace(Airspace airspace) {
+        return airspace.derived(ClusterGraph.class, ClusterGraph::build);
+    }
+
+    private static ClusterGraph build(Airspace airspace) {
+        double minLng = Constants.APPLETON_TOWER.lng(), maxLng = minLng;
+        double minLat = Constants.APPLETON_TOWER.lat(), maxLat = minLat;
+        List<nameData.NamedRegion> regions = new ArrayList<>(airspace.getNoFlyZones());
+        regions.add(airspace.getCentralArea());
+        for (nameData.NamedRegion region : regions) {
+            if (region == null || region.getCoordinates() == null) continue;
+            for (Position vertex : region.getCoordinates()) {
+                minLng = Math.min(minLng, vertex.lng());
+                maxLng = Math.max(maxLng, vertex.lng());
+                minLat = Math.min(minLat, vertex.lat());
+                maxLat = Math.max(maxLat, vertex.lat());
+            }
+        }
+        return new ClusterGraph(airspace, minLng - MARGIN, minLat - MARGIN, maxLng + MARGIN, maxLat + MARGIN);
+    }
+
+    public int nodeCount() {
+        return nodeCell.length;
+    }
+
+    /**
+     * Centres of the cells where the abstract route from start to end enters each cluster, ending with the end.
+     * Returns an empty list if either point is outside the graph or the route is blocked.
+     */
+    public List<Position> route(Position start, Position end) {
+        int startCell = cellAt(start.lng(), start.lat());
+        int endCell = cellAt(end.lng(), end.lat());
+        if (startCell < 0 || endCell < 0 || blocked.get(startCell)) {
+            return List.of();
+        }
+
+        // Temporary nodes for the start and end, connected to the entrances of their clusters
+        int startNode = nodeCell.length;
+        int endNode = startNode + 1;
+        double[] fromStart = clusterDijkstra(startCell, false);
+        double[] toEnd = clusterDijkstra(endCell, true);
+        int endCluster = clusterOf(endCell);
+
+        double[] best = new double[endNode + 1];
+        int[] previous = new int[endNode + 1];
+        Arrays.fill(best, Double.POSITIVE_INFINITY);
+        Arrays.fill(previous, -1);
+        best[startNode] = 0;
+        IndexedHeap open = new IndexedHeap(endNode + 1);
+        open.push(startNode, 0);
+
+        while (!open.isEmpty()) {
+            int node = open.pop();
+            if (node == endNode) {
+                break;
+            }
+            if (node == startNode) {
+                for (int to : clusterNodes[clusterOf(startCell)]) {
+                    relax(open, best, previous, node, to, fromStart[localIndex(nodeCell[to])], end);
+                }
+                if (clusterOf(startCell) == endCluster) {
+                    relax(open, best, previous, node, endNode, fromStart[localIndex(endCell)], end);
+                }
+                continue;
+            }
+            for (int i = 0; i < edgeTarget[node].length; i++) {
+                relax(open, best, previous, node, edgeTarget[node][i], edgeCost[node][i], end);
+            }
+            if (clusterOf(nodeCell[node]) == endCluster) {
+                relax(open, best, previous, node, endNode, toEnd[localIndex(nodeCell[node])], end);
+            }
+        }
+        if (previous[endNode] == -1) {
+            return List.of();
+        }
+
+        List<Integer> nodes = new ArrayList<>();
+        for (int node = previous[endNode]; node != startNode; node = previous[node]) {
+            nodes.add(0, node);
+        }
+        List<Position> waypoints = new ArrayList<>();
+        int cluster = clusterOf(startCell);
+        for (int node : nodes) {
+            if (clusterOf(nodeCell[node]) != cluster) {
+                cluster = clusterOf(nodeCell[node]);
+                waypoints.add(cellCentre(nodeCell[node]));
+            }
+        }
+        waypoints.add(end);
+        return waypoints;
+    }
+
+    // A* step on the abstract graph, with the straight-line distance to the end as heuristic
+    private void relax(IndexedHeap open, double[] best, int[] previous, int from, int to, double cost, Position end) {
+        double g = best[from] + cost;
+        if (cost == Double.POSITIVE_INFINITY || g >= best[to]) {
+            return;
+        }
+        best[to] = g;
+        previous[to] = from;
+        double h = to < nodeCell.length ? distance(cellCentre(nodeCell[to]), end) : 0;
+        open.pushOrDecrease(to, g + h);
+    }
+
+    /**
+     * Dijkstra over the cells of one cluster from (or, reversed, towards) a cell, in degrees.
+     * Returns the costs indexed by the cell's position within the cluster.
+     */
+    private double[] clusterDijkstra(int sourceCell, boolean reversed) {
+        int cluster = clusterOf(sourceCell);
+        int firstColumn = (cluster % clusterColumns) * CLUSTER_CELLS;
+        int firstRow = (cluster / clusterColumns) * CLUSTER_CELLS;
+
+        double[] cost = new double[CLUSTER_CELLS * CLUSTER_CELLS];
+        Arrays.fill(cost, Double.POSITIVE_INFINITY);
+        IndexedHeap open = new IndexedHeap(cost.length);
+        cost[localIndex(sourceCell)] = 0;
+        open.push(localIndex(sourceCell), 0);
+
+        while (!open.isEmpty()) {
+            int local = open.pop();
+            int column = firstColumn + local % CLUSTER_CELLS;
+            int row = firstRow + local / CLUSTER_CELLS;
+            int cell = row * columns + column;
+            for (int d = 0; d < STEP_COLUMN.length; d++) {
+                int nextColumn = column + STEP_COLUMN[d], nextRow = row + STEP_ROW[d];
+                if (nextColumn < firstColumn || nextColumn >= firstColumn + CLUSTER_CELLS
+                        || nextRow < firstRow || nextRow >= firstRow + CLUSTER_CELLS) {
+                    continue;
+                }
+                int next = nextRow * columns + nextColumn;
+                if (!(reversed ? canStep(next, cell) : canStep(cell, next))) continue;
+                // Diagonal steps may not cut the corner of a blocked cell
+                if (d % 2 == 1 && (blocked.get(row * columns + nextColumn) || blocked.get(nextRow * columns + column))) continue;
+
+                double nextCost = cost[local] + (d % 2 == 1 ? DIAGONAL : 1) * cellSize;
+                int nextLocal = (nextRow - firstRow) * CLUSTER_CELLS + (nextColumn - firstColumn);
+                if (nextCost < cost[nextLocal]) {
+                    cost[nextLocal] = nextCost;
+                    open.pushOrDecrease(nextLocal, nextCost);
+                }
+            }
+        }
+        return cost;
+    }
+
+    // One cell step, following the no-fly and central-area rules
+    private boolean canStep(int from, int to) {
+        return !blocked.get(from) && !blocked.get(to) && !(central.get(from) && !central.get(to));
+    }
+
+    /**
+     * Adds entrances along the border between the cells starting at (column, row), walking by (stepColumn, stepRow),
+     * and the cells across the border at offset (acrossColumn, acrossRow).
+     */
+    private void addEntrances(List<Integer> cells, List<List<Edge>> edges, int column, int row,
+                              int acrossColumn, int acrossRow, int stepColumn, int stepRow) {
+        int runStart = -1;
+        for (int i = 0; i <= CLUSTER_CELLS; i++) {
+            boolean free = false;
+            if (i < CLUSTER_CELLS) {
+                int inside = (row + i * stepRow) * columns + column + i * stepColumn;
+                int across = inside + acrossRow * columns + acrossColumn;
+                free = !blocked.get(inside) && !blocked.get(across);
+            }
+            if (free && runStart < 0) {
+                runStart = i;
+            } else if (!free && runStart >= 0) {
+                int length = i - runStart;
+                if (length > LONG_ENTRANCE) {
+                    addEntrance(cells, edges, column, row, acrossColumn, acrossRow, stepColumn, stepRow, runStart);
+                    addEntrance(cells, edges, column, row, acrossColumn, acrossRow, stepColumn, stepRow, i - 1);
+                } else {
+                    addEntrance(cells, edges, column, row, acrossColumn, acrossRow, stepColumn, stepRow, runStart + length / 2);
+                }
+                runStart = -1;
+            }
+        }
+    }
+
+    private void addEntrance(List<Integer> cells, List<List<Edge>> edges, int column, int row,
+                             int acrossColumn, int acrossRow, int stepColumn, int stepRow, int offset) {
+        int inside = (row + offset * stepRow) * columns + column + offset * stepColumn;
+        int across = inside + acrossRow * columns + acrossColumn;
+        int insideNode = cells.size();
+        int acrossNode = insideNode + 1;
+        cells.add(inside);
+        cells.add(across);
+        edges.add(new ArrayList<>());
+        edges.add(new ArrayList<>());
+        if (canStep(inside, across)) {
+            edges.get(insideNode).add(new Edge(acrossNode, cellSize));
+        }
+        if (canStep(across, inside)) {
+            edges.get(acrossNode).add(new Edge(insideNode, cellSize));
+        }
+    }
+
+    private int cellAt(double lng, double lat) {
+        int column = (int) Math.floor((lng - originLng) / cellSize);
+        int row = (int) Math.floor((lat - originLat) / cellSize);
+        if (column < 0 || row < 0 || column >= columns || row >= rows) {
+            return -1;
+        }
+        return row * columns + column;
+    }
+
+    private int clusterOf(int cell) {
+        return (cell / columns / CLUSTER_CELLS) * clusterColumns + (cell % columns) / CLUSTER_CELLS;
+    }
+
+    private int localIndex(int cell) {
+        return ((cell / columns) % CLUSTER_CELLS) * CLUSTER_CELLS + (cell % columns) % CLUSTER_CELLS;
+    }
+
+    private double cellLng(int column) {
+        return originLng + (column + 0.5) * cellSize;
+    }
+
+    private double cellLat(int row) {
+        return originLat + (row + 0.5) * cellSize;
+    }
+
+    private Position cellCentre(int cell) {
+        return new Position(cellLng(cell % columns), cellLat(cell / columns));
+    }
+
+    private static double distance(Position a, Position b) {
+        return Math.hypot(a.lng() - b.lng(), a.lat() - b.lat());
+    }
+}
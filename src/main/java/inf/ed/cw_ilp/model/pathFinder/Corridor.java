@@ -0,0 +1,126 @@
+package inf.ed.cw_ilp.model.pathFinder;
+
+import inf.ed.cw_ilp.model.Regions.Position;
+import inf.ed.cw_ilp.utils.Constants;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Corridor is the set of lattice cells within a buffer distance of a waypoint route.
+ * A_Star limits long searches to it, so only the strip round the visibility-graph route gets explored.
+ */
+public class Corridor {
+
+    // Deliveries at least this far away get a corridor search, WIDTH either side of the route
+    static final double MIN_DISTANCE = 0.005;
+    static final double WIDTH = 0.0015;
+
+    // Upper bound on cells, very long routes get cells of several moves instead
+    private static final int MAX_CELLS = 1 << 22;
+
+    private final double originLng;
+    private final double originLat;
+    private final double cellSize;
+    private final int columns;
+    private final int rows;
+    private final BitSet cells;
+
+    private Corridor(double originLng, double originLat, double cellSize, int columns, int rows) {
+        this.originLng = originLng;
+        this.originLat = originLat;
+        this.cellSize = cellSize;
+        this.columns = columns;
+        this.rows = rows;
+        this.cells = new BitSet(columns * rows);
+    }
+
+    // A corridor-first search's path, and whether it was found inside the corridor rather than on the whole lattice
+    record Outcome(List<Position> path, boolean withinCorridor) {}
+
+    /**
+     * Long deliveries through an airspace with no-fly zones are routed round the zones on the visibility graph
+     * first, and the lattice search only explores the corridor round that route. The search is given the corridor,
+     * or null for the whole lattice, which it gets for short deliveries or when the corridor has no way through.
+     * A path found in the corridor is only known to be the shortest within it.
+     */
+    static Outcome searchFirst(Position start, Position end, Airspace airspace, Function<Corridor, List<Position>> search) {
+        double dLng = start.lng() - end.lng();
+        double dLat = start.lat() - end.lat();
+        if (!airspace.getNoFlyZones().isEmpty() && Math.sqrt(dLng * dLng + dLat * dLat) >= MIN_DISTANCE) {
+            List<Position> route = VisibilityGraph.forAirspace(airspace).route(start, end);
+            if (!route.isEmpty()) {
+                List<Position> path = search.apply(around(route, WIDTH));
+                if (!path.isEmpty()) {
+                    return new Outcome(path, true);
+                }
+            }
+        }
+        return new Outcome(search.apply(null), false);
+    }
+
+    // Cells whose centre is within width of the route; cells are one move wide where that fits
+    public static Corridor around(List<Position> route, double width) {
+        double minLng = Double.POSITIVE_INFINITY, minLat = Double.POSITIVE_INFINITY;
+        double maxLng = Double.NEGATIVE_INFINITY, maxLat = Double.NEGATIVE_INFINITY;
+        for (Position waypoint : route) {
+            minLng = Math.min(minLng, waypoint.lng());
+            minLat = Math.min(minLat, waypoint.lat());
+            maxLng = Math.max(maxLng, waypoint.lng());
+            maxLat = Math.max(maxLat, waypoint.lat());
+        }
+        double cellSize = Constants.MOVE_DISTANCE;
+        while (((maxLng - minLng + 2 * width) / cellSize + 4) * ((maxLat - minLat + 2 * width) / cellSize + 4) > MAX_CELLS) {
+            cellSize += Constants.MOVE_DISTANCE;
+        }
+
+        double originLng = minLng - width - cellSize;
+        double originLat = minLat - width - cellSize;
+        int columns = (int) Math.ceil((maxLng + width + cellSize - originLng) / cellSize) + 1;
+        int rows = (int) Math.ceil((maxLat + width + cellSize - originLat) / cellSize) + 1;
+
+        Corridor corridor = new Corridor(originLng, originLat, cellSize, columns, rows);
+        // Half a cell diagonal of slack so every point within width lands in a marked cell
+        double reach = width + cellSize * Math.sqrt(0.5);
+        for (int i = 0; i + 1 < route.size(); i++) {
+            corridor.markSegment(route.get(i), route.get(i + 1), reach);
+        }
+        return corridor;
+    }
+
+    public boolean contains(double lng, double lat) {
+        int column = (int) Math.floor((lng - originLng) / cellSize);
+        int row = (int) Math.floor((lat - originLat) / cellSize);
+        if (column < 0 || row < 0 || column >= columns || row >= rows) {
+            return false;
+        }
+        return cells.get(row * columns + column);
+    }
+
+    private void markSegment(Position a, Position b, double reach) {
+        int firstColumn = Math.max(0, (int) Math.floor((Math.min(a.lng(), b.lng()) - reach - originLng) / cellSize));
+        int lastColumn = Math.min(columns - 1, (int) Math.floor((Math.max(a.lng(), b.lng()) + reach - originLng) / cellSize));
+        int firstRow = Math.max(0, (int) Math.floor((Math.min(a.lat(), b.lat()) - reach - originLat) / cellSize));
+        int lastRow = Math.min(rows - 1, (int) Math.floor((Math.max(a.lat(), b.lat()) + reach - originLat) / cellSize));
+
+        double dLng = b.lng() - a.lng();
+        double dLat = b.lat() - a.lat();
+        double lengthSquared = dLng * dLng + dLat * dLat;
+        for (int row = firstRow; row <= lastRow; row++) {
+            double lat = originLat + (row + 0.5) * cellSize;
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                double lng = originLng + (column + 0.5) * cellSize;
+
+                // Distance from the cell centre to the closest point of the segment
+                double t = lengthSquared == 0 ? 0 : ((lng - a.lng()) * dLng + (lat - a.lat()) * dLat) / lengthSquared;
+                t = Math.max(0, Math.min(1, t));
+                double offLng = lng - (a.lng() + t * dLng);
+                double offLat = lat - (a.lat() + t * dLat);
+                if (offLng * offLng + offLat * offLat <= reach * reach) {
+                    cells.set(row * columns + column);
+                }
+            }
+        }
+    }
+}
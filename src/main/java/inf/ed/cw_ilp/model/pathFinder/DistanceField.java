@@ -0,0 +1,181 @@
+package inf.ed.cw_ilp.model.pathFinder;
+
+import inf.ed.cw_ilp.model.Regions.Position;
+import inf.ed.cw_ilp.utils.Constants;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * DistanceField is a single Dijkstra flood run backwards from Appleton Tower over the legal moves.
+ * For every half-move cell in the service area it keeps the direction of the next move towards the tower,
+ * so the path from any start position is read off by following next-hops instead of searching.
+ * The flood respects the no-fly zones and the central-area rule (a route may enter the area but not leave it).
+ */
+public class DistanceField {
+
+    // Half a move per cell, so the moves out of a cell land in different cells
+    static final double CELL_SIZE = Constants.MOVE_DISTANCE / 2;
+
+    // The field covers the regions and the tower with this margin, which takes in every restaurant we deliver from
+    static final double MARGIN = 0.02;
+
+    private static final byte UNREACHED = -1;
+    private static final byte GOAL = MoveTable.DIRECTIONS;
+
+    private final Airspace airspace;
+    private final Position goal;
+    private final double originLng;
+    private final double originLat;
+    private final int columns;
+    private final int rows;
+    private final byte[] nextHop;
+    private final float[] distance;
+
+    private DistanceField(Airspace airspace, Position goal, double originLng, double originLat, int columns, int rows) {
+        this.airspace = airspace;
+        this.goal = goal;
+        this.originLng = originLng;
+        this.originLat = originLat;
+        this.columns = columns;
+        this.rows = rows;
+        this.nextHop = new byte[columns * rows];
+        this.distance = new float[columns * rows];
+        Arrays.fill(nextHop, UNREACHED);
+        Arrays.fill(distance, Float.POSITIVE_INFINITY);
+    }
+
+    public static DistanceField forAirspace(Airspace airspace) {
+        return airspace.derived(DistanceField.class, a -> build(a, Constants.APPLETON_TOWER));
+    }
+
+    public static DistanceField build(Airspace airspace, Position goal) {
+        double minLng = goal.lng(), maxLng = goal.lng(), minLat = goal.lat(), maxLat = goal.lat();
+        List<nameData.NamedRegion> regions = new ArrayList<>(airspace.getNoFlyZones());
+        regions.add(airspace.getCentralArea());
+        for (nameData.NamedRegion region : regions) {
+            if (region.getCoordinates() == null) {
+                continue;
+            }
+            for (Position vertex : region.getCoordinates()) {
+                minLng = Math.min(minLng, vertex.lng());
+                maxLng = Math.max(maxLng, vertex.lng());
+                minLat = Math.min(minLat, vertex.lat());
+                maxLat = Math.max(maxLat, vertex.lat());
+            }
+        }
+        double originLng = minLng - MARGIN;
+        double originLat = minLat - MARGIN;
+        int columns = (int) Math.ceil((maxLng + MARGIN - originLng) / CELL_SIZE);
+        int rows = (int) Math.ceil((maxLat + MARGIN - originLat) / CELL_SIZE);
+
+        DistanceField field = new DistanceField(airspace, goal, originLng, originLat, columns, rows);
+        field.flood();
+        return field;
+    }
+
+    /**
+     * Path from the start to within CLOSE_DISTANCE of the goal, following the stored next-hops.
+     * Returns an empty list if the start is outside the field, unreachable, or the walk would break a rule,
+     * in which case the caller should fall back to a search.
+     */
+    public List<Position> pathFrom(Position start) {
+        List<Position> path = new ArrayList<>();
+        path.add(start);
+        double lng = start.lng();
+        double lat = start.lat();
+        int maxSteps = 4 * (columns + rows);
+
+        for (int step = 0; step < maxSteps; step++) {
+            if (Math.hypot(lng - goal.lng(), lat - goal.lat()) <= Constants.CLOSE_DISTANCE) {
+                return path;
+            }
+            int cell = cellOf(lng, lat);
+            if (cell < 0 || nextHop[cell] == UNREACHED || nextHop[cell] == GOAL) {
+                return List.of();
+            }
+
+            int direction = nextHop[cell];
+            double nextLng = lng + MoveTable.dLng(direction);
+            double nextLat = lat + MoveTable.dLat(direction);
+            // The walk is a little off the cell's own route, so check each move again
+            if (airspace.isNoFlyMove(lng, lat, nextLng, nextLat)
+                    || (airspace.isInCentralArea(lng, lat) && !airspace.isInCentralArea(nextLng, nextLat))) {
+                return List.of();
+            }
+            lng = nextLng;
+            lat = nextLat;
+            path.add(new Position(lng, lat));
+        }
+        return List.of();
+    }
+
+    // Moves needed from a point to the goal, in degrees of flight, or infinity if it can't be reached
+    public double distanceFrom(double lng, double lat) {
+        int cell = cellOf(lng, lat);
+        return cell < 0 ? Double.POSITIVE_INFINITY : distance[cell];
+    }
+
+    private void flood() {
+        // Representative point of each cell: the point the cell's next-hop was computed from
+        double[] pointLng = new double[nextHop.length];
+        double[] pointLat = new double[nextHop.length];
+        boolean[] settled = new boolean[nextHop.length];
+        double[] best = new double[nextHop.length];
+        Arrays.fill(best, Double.POSITIVE_INFINITY);
+        IndexedHeap open = new IndexedHeap(1 << 16);
+
+        int goalCell = cellOf(goal.lng(), goal.lat());
+        best[goalCell] = 0;
+        nextHop[goalCell] = GOAL;
+        pointLng[goalCell] = goal.lng();
+        pointLat[goalCell] = goal.lat();
+        open.push(goalCell, 0);
+
+        while (!open.isEmpty()) {
+            int cell = open.pop();
+            settled[cell] = true;
+            double lng = pointLng[cell];
+            double lat = pointLat[cell];
+            boolean inCentralArea = airspace.isInCentralArea(lng, lat);
+            double newDistance = best[cell] + Constants.MOVE_DISTANCE;
+
+            // Which points reach this one in a single move? Step backwards along every direction.
+            for (int direction = 0; direction < MoveTable.DIRECTIONS; direction++) {
+                double fromLng = lng - MoveTable.dLng(direction);
+                double fromLat = lat - MoveTable.dLat(direction);
+                int fromCell = cellOf(fromLng, fromLat);
+                if (fromCell < 0 || settled[fromCell] || newDistance >= best[fromCell]) {
+                    continue;
+                }
+                if (airspace.isNoFly(fromLng, fromLat) || airspace.crossesNoFlyEdge(fromLng, fromLat, lng, lat)) {
+                    continue;
+                }
+                // Moving forwards from inside the central area to outside it is not allowed
+                if (!inCentralArea && airspace.isInCentralArea(fromLng, fromLat)) {
+                    continue;
+                }
+
+                best[fromCell] = newDistance;
+                nextHop[fromCell] = (byte) direction;
+                pointLng[fromCell] = fromLng;
+                pointLat[fromCell] = fromLat;
+                open.pushOrDecrease(fromCell, newDistance);
+            }
+        }
+
+        for (int cell = 0; cell < best.length; cell++) {
+            distance[cell] = (float) best[cell];
+        }
+    }
+
+    private int cellOf(double lng, double lat) {
+        int column = (int) Math.floor((lng - originLng) / CELL_SIZE);
+        int row = (int) Math.floor((lat - originLat) / CELL_SIZE);
+        if (column < 0 || row < 0 || column >= columns || row >= rows) {
+            return -1;
+        }
+        return row * columns + column;
+    }
+}
@@ -0,0 +1,124 @@
+package inf.ed.cw_ilp.model.pathFinder;
+
+import inf.ed.cw_ilp.model.Regions.Position;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DronePathCodec is the binary form of a delivery path, served as application/x-drone-path for clients that
+ * would rather not parse a JSON array of positions. All numbers are big-endian:
+ *
+ *   magic      2 bytes, "DP"
+ *   version    1 byte, FORMAT_VERSION
+ *   airspace   8 bytes, the Airspace version the path was planned against
+ *   restaurant varint length, then that many bytes of UTF-8 name
+ *   start      2 doubles, longitude then latitude
+ *   runs       varint count, then one varint per run: count << 5 | direction (HOVER_CODE for a hover)
+ *
+ * The runs are PathEncoding.moves of the path, so decoding replays them from the start on the lattice.
+ */
+public final class DronePathCodec {
+
+    public static final String MEDIA_TYPE = "application/x-drone-path";
+
+    public static final int FORMAT_VERSION = 1;
+
+    private static final byte[] MAGIC = {'D', 'P'};
+
+    // Direction code of a hover; the 16 MoveTable directions are 0-15
+    private static final int HOVER_CODE = MoveTable.DIRECTIONS;
+    private static final int DIRECTION_BITS = 5;
+
+    public record DronePath(long airspaceVersion, String restaurant, PathEncoding.MoveSequence moves) {
+
+        public List<Position> positions() {
+            return PathEncoding.decode(moves);
+        }
+    }
+
+    private DronePathCodec() {
+    }
+
+    public static byte[] encode(long airspaceVersion, String restaurant, List<Position> path) {
+        if (path.isEmpty()) {
+            throw new IllegalArgumentException("An empty path has no start to encode");
+        }
+        PathEncoding.MoveSequence moves = PathEncoding.moves(path);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + 2 * moves.runs().size());
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.write(MAGIC);
+            out.writeByte(FORMAT_VERSION);
+            out.writeLong(airspaceVersion);
+            byte[] name = restaurant == null ? new byte[0] : restaurant.getBytes(StandardCharsets.UTF_8);
+            writeVarint(out, name.length);
+            out.write(name);
+            out.writeDouble(moves.start().lng());
+            out.writeDouble(moves.start().lat());
+            writeVarint(out, moves.runs().size());
+            for (PathEncoding.Run run : moves.runs()) {
+                int code = run.direction() == PathEncoding.HOVER ? HOVER_CODE : run.direction();
+                writeVarint(out, (long) run.count() << DIRECTION_BITS | code);
+            }
+        } catch (IOException e) {
+            // A ByteArrayOutputStream doesn't throw
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static DronePath decode(byte[] encoded) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(encoded))) {
+            if (in.readByte() != MAGIC[0] || in.readByte() != MAGIC[1]) {
+                throw new IllegalArgumentException("Not a drone path");
+            }
+            int version = in.readUnsignedByte();
+            if (version != FORMAT_VERSION) {
+                throw new IllegalArgumentException("Unsupported drone path version " + version);
+            }
+            long airspaceVersion = in.readLong();
+            byte[] name = new byte[(int) readVarint(in)];
+            in.readFully(name);
+            Position start = new Position(in.readDouble(), in.readDouble());
+            int runCount = (int) readVarint(in);
+            List<PathEncoding.Run> runs = new ArrayList<>(runCount);
+            for (int i = 0; i < runCount; i++) {
+                long run = readVarint(in);
+                int code = (int) (run & ((1 << DIRECTION_BITS) - 1));
+                runs.add(new PathEncoding.Run(code == HOVER_CODE ? PathEncoding.HOVER : code, (int) (run >>> DIRECTION_BITS)));
+            }
+            return new DronePath(airspaceVersion, new String(name, StandardCharsets.UTF_8),
+                    new PathEncoding.MoveSequence(start, runs));
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Truncated drone path", e);
+        }
+    }
+
+    // Seven bits per byte, low bits first, high bit set on every byte but the last
+    private static void writeVarint(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarint(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint in drone path");
+    }
+}
@@ -0,0 +1,200 @@
+package inf.ed.cw_ilp.model.pathFinder;
+
+import inf.ed.cw_ilp.model.Regions.Position;
+import inf.ed.cw_ilp.utils.Constants;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * EdgeIndex buckets the edges of a set of regions on a uniform grid, so a short segment can be tested against
+ * only the edges that pass near it. Each bucket lists every edge that touches it (compressed, one int array for all
+ * buckets), and a move, being shorter than a bucket, only ever looks at the two-by-two block of buckets it spans.
+ *
+ * It answers whether a straight move between two points touches any region edge. A point check at both ends of a
+ * move misses a move that clips a corner or jumps over a zone narrower than a move; this catches both.
+ */
+public class EdgeIndex {
+
+    // Buckets are a few moves wide, so a move spans at most two in each direction
+    private static final double MIN_BUCKET_SIZE = 4 * Constants.MOVE_DISTANCE;
+
+    // Upper bound on buckets per index; very large regions get wider buckets instead
+    private static final int MAX_BUCKETS = 1 << 20;
+
+    private final double originLng;
+    private final double originLat;
+    private final double bucketSize;
+    private final int columns;
+    private final int rows;
+
+    // Edge i runs from (fromLng[i], fromLat[i]) to (toLng[i], toLat[i])
+    private final double[] fromLng;
+    private final double[] fromLat;
+    private final double[] toLng;
+    private final double[] toLat;
+
+    // The edges of bucket b are bucketEdges[bucketStart[b] .. bucketStart[b + 1])
+    private final int[] bucketStart;
+    private final int[] bucketEdges;
+
+    private EdgeIndex(double originLng, double originLat, double bucketSize, int columns, int rows,
+                      double[][] edges, int edgeCount) {
+        this.originLng = originLng;
+        this.originLat = originLat;
+        this.bucketSize = bucketSize;
+        this.columns = columns;
+        this.rows = rows;
+        this.fromLng = Arrays.copyOf(edges[0], edgeCount);
+        this.fromLat = Arrays.copyOf(edges[1], edgeCount);
+        this.toLng = Arrays.copyOf(edges[2], edgeCount);
+        this.toLat = Arrays.copyOf(edges[3], edgeCount);
+
+        // Count the edges per bucket, then fill: two passes over the same cover test, no per-bucket lists
+        int buckets = columns * rows;
+        bucketStart = new int[buckets + 1];
+        for (int edge = 0; edge < edgeCount; edge++) {
+            forEachBucket(edge, bucket -> bucketStart[bucket + 1]++);
+        }
+        for (int bucket = 0; bucket < buckets; bucket++) {
+            bucketStart[bucket + 1] += bucketStart[bucket];
+        }
+        bucketEdges = new int[bucketStart[buckets]];
+        int[] filled = Arrays.copyOf(bucketStart, buckets);
+        for (int edge = 0; edge < edgeCount; edge++) {
+            final int current = edge;
+            forEachBucket(edge, bucket -> bucketEdges[filled[bucket]++] = current);
+        }
+    }
+
+    // Indexes the edges of the regions; regions without vertices add none
+    public static EdgeIndex build(List<nameData.NamedRegion> regions) {
+        int vertexCount = 0;
+        double minLng = Double.POSITIVE_INFINITY, minLat = Double.POSITIVE_INFINITY;
+        double maxLng = Double.NEGATIVE_INFINITY, maxLat = Double.NEGATIVE_INFINITY;
+        for (nameData.NamedRegion region : regions) {
+            if (region == null || region.getCoordinates() == null) continue;
+            for (Position vertex : region.getCoordinates()) {
+                vertexCount++;
+                minLng = Math.min(minLng, vertex.lng());
+                minLat = Math.min(minLat, vertex.lat());
+                maxLng = Math.max(maxLng, vertex.lng());
+                maxLat = Math.max(maxLat, vertex.lat());
+            }
+        }
+        if (vertexCount == 0) {
+            return new EdgeIndex(0, 0, MIN_BUCKET_SIZE, 0, 0, new double[4][0], 0);
+        }
+
+        double bucketSize = MIN_BUCKET_SIZE;
+        while (((maxLng - minLng) / bucketSize + 3) * ((maxLat - minLat) / bucketSize + 3) > MAX_BUCKETS) {
+            bucketSize *= 2;
+        }
+        // One bucket of margin all round, so every edge lies well inside the grid
+        double originLng = minLng - bucketSize;
+        double originLat = minLat - bucketSize;
+        int columns = (int) Math.ceil((maxLng - originLng) / bucketSize) + 2;
+        int rows = (int) Math.ceil((maxLat - originLat) / bucketSize) + 2;
+
+        double[][] edges = new double[4][vertexCount];
+        int edgeCount = 0;
+        for (nameData.NamedRegion region : regions) {
+            if (region == null || region.getCoordinates() == null) continue;
+            Position[] vertices = region.getCoordinates();
+            for (int i = 0; i < vertices.length; i++) {
+                Position next = vertices[(i + 1) % vertices.length];
+                edges[0][edgeCount] = vertices[i].lng();
+                edges[1][edgeCount] = vertices[i].lat();
+                edges[2][edgeCount] = next.lng();
+                edges[3][edgeCount] = next.lat();
+                edgeCount++;
+            }
+        }
+        return new EdgeIndex(originLng, originLat, bucketSize, columns, rows, edges, edgeCount);
+    }
+
+    // True if the segment from (aLng, aLat) to (bLng, bLat) touches any edge, ends included
+    public boolean crosses(double aLng, double aLat, double bLng, double bLat) {
+        int firstColumn = column(Math.min(aLng, bLng));
+        int lastColumn = column(Math.max(aLng, bLng));
+        int firstRow = row(Math.min(aLat, bLat));
+        int lastRow = row(Math.max(aLat, bLat));
+        if (lastColumn < 0 || lastRow < 0 || firstColumn >= columns || firstRow >= rows) {
+            return false;
+        }
+        firstColumn = Math.max(0, firstColumn);
+        firstRow = Math.max(0, firstRow);
+        lastColumn = Math.min(columns - 1, lastColumn);
+        lastRow = Math.min(rows - 1, lastRow);
+
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                int bucket = row * columns + column;
+                for (int i = bucketStart[bucket]; i < bucketStart[bucket + 1]; i++) {
+                    int edge = bucketEdges[i];
+                    if (segmentsTouch(aLng, aLat, bLng, bLat, fromLng[edge], fromLat[edge], toLng[edge], toLat[edge])) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private int column(double lng) {
+        return (int) Math.floor((lng - originLng) / bucketSize);
+    }
+
+    private int row(double lat) {
+        return (int) Math.floor((lat - originLat) / bucketSize);
+    }
+
+    // Calls the action for every bucket the edge passes through, with a small tolerance so rounding never drops one
+    private void forEachBucket(int edge, IntConsumer action) {
+        double epsilon = bucketSize * 1e-6;
+        double aLng = fromLng[edge], aLat = fromLat[edge], bLng = toLng[edge], bLat = toLat[edge];
+        int firstColumn = Math.max(0, column(Math.min(aLng, bLng) - epsilon));
+        int lastColumn = Math.min(columns - 1, column(Math.max(aLng, bLng) + epsilon));
+        int firstRow = Math.max(0, row(Math.min(aLat, bLat) - epsilon));
+        int lastRow = Math.min(rows - 1, row(Math.max(aLat, bLat) + epsilon));
+        for (int row = firstRow; row <= lastRow; row++) {
+            double minLat = originLat + row * bucketSize - epsilon;
+            double maxLat = minLat + bucketSize + 2 * epsilon;
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                double minLng = originLng + column * bucketSize - epsilon;
+                double maxLng = minLng + bucketSize + 2 * epsilon;
+                if (OccupancyGrid.segmentTouchesBox(aLng, aLat, bLng, bLat, minLng, minLat, maxLng, maxLat)) {
+                    action.accept(row * columns + column);
+                }
+            }
+        }
+    }
+
+    // Closed segment intersection: crossing, touching at an end, or overlapping along a line all count
+    static boolean segmentsTouch(double aLng, double aLat, double bLng, double bLat,
+                                 double cLng, double cLat, double dLng, double dLat) {
+        double d1 = orientation(cLng, cLat, dLng, dLat, aLng, aLat);
+        double d2 = orientation(cLng, cLat, dLng, dLat, bLng, bLat);
+        double d3 = orientation(aLng, aLat, bLng, bLat, cLng, cLat);
+        double d4 = orientation(aLng, aLat, bLng, bLat, dLng, dLat);
+        if (((d1 > 0 && d2 < 0) || (d1 < 0 && d2 > 0)) && ((d3 > 0 && d4 < 0) || (d3 < 0 && d4 > 0))) {
+            return true;
+        }
+        return (d1 == 0 && inBox(cLng, cLat, dLng, dLat, aLng, aLat))
+                || (d2 == 0 && inBox(cLng, cLat, dLng, dLat, bLng, bLat))
+                || (d3 == 0 && inBox(aLng, aLat, bLng, bLat, cLng, cLat))
+                || (d4 == 0 && inBox(aLng, aLat, bLng, bLat, dLng, dLat));
+    }
+
+    // Sign of the cross product (q - p) x (r - p): which side of the line pq the point r is on
+    private static double orientation(double pLng, double pLat, double qLng, double qLat, double rLng, double rLat) {
+        return (qLng - pLng) * (rLat - pLat) - (qLat - pLat) * (rLng - pLng);
+    }
+
+    // For a point already known to be on the line pq: whether it lies between p and q
+    private static boolean inBox(double pLng, double pLat, double qLng, double qLat, double rLng, double rLat) {
+        return rLng >= Math.min(pLng, qLng) && rLng <= Math.max(pLng, qLng)
+                && rLat >= Math.min(pLat, qLat) && rLat <= Math.max(pLat, qLat);
+    }
+}
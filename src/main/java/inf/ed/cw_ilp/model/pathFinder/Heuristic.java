@@ -0,0 +1,22 @@
+package inf.ed.cw_ilp.model.pathFinder;
+
+import inf.ed.cw_ilp.model.Regions.Position;
+
+/**
+ * A heuristic estimates the cost of flying from a point to within CLOSE_DISTANCE of a fixed goal.
+ * The searches stay optimal as long as the estimate never exceeds the real cost; the tighter it is,
+ * the fewer states they expand.
+ */
+public interface Heuristic {
+
+    double estimate(double lng, double lat);
+
+    // Straight-line distance to the goal itself, what A_Star used before the heuristics were pluggable
+    static Heuristic euclidean(Position goal) {
+        return (lng, lat) -> Math.hypot(lng - goal.lng(), lat - goal.lat());
+    }
+
+    static Heuristic lattice(Position goal) {
+        return new LatticeHeuristic(goal);
+    }
+}
@@ -0,0 +1,79 @@
+package inf.ed.cw_ilp.model.pathFinder;
+
+import inf.ed.cw_ilp.model.Regions.Position;
+import inf.ed.cw_ilp.utils.Constants;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * HierarchicalSearch plans on the ClusterGraph first and then refines the abstract route on the lattice,
+ * one cluster at a time: an A_Star search runs from where the drone is to the next cluster entrance,
+ * and the next one carries on from wherever that search ended. Each local search only crosses one
+ * cluster, so the work per request grows with the path length rather than with the size of the area.
+ *
+ * The result is usually a few moves longer than a full A* path, with no proven bound on how much, so
+ * suboptimalityBound() is NaN for it. If the start lies outside the graph,
+ * or a local search can't reach its waypoint, it falls back to a full A_Star search.
+ */
+public class HierarchicalSearch implements PathFinder {
+
+    private final Position start;
+    private final Position end;
+    private final Airspace airspace;
+    private final SearchBudget budget;
+
+    // NaN for a refined cluster route, which has no proven bound; otherwise that of the full search fallen back to
+    private double suboptimalityBound = Double.NaN;
+
+    public HierarchicalSearch(Position start, Position end, Airspace airspace) {
+        this(start, end, airspace, SearchBudget.standard());
+    }
+
+    // The local searches all draw on the same budget
+    public HierarchicalSearch(Position start, Position end, Airspace airspace, SearchBudget budget) {
+        this.start = start;
+        this.end = end;
+        this.airspace = airspace;
+        this.budget = budget;
+    }
+
+    @Override
+    public List<Position> calculatePath() {
+        suboptimalityBound = Double.NaN;
+        List<Position> waypoints = ClusterGraph.forAirspace(airspace).route(start, end);
+        if (waypoints.isEmpty()) {
+            return fullSearch();
+        }
+
+        List<Position> path = new ArrayList<>();
+        path.add(start);
+        for (Position waypoint : waypoints) {
+            Position current = path.get(path.size() - 1);
+            List<Position> segment = new A_Star(current, waypoint, airspace, budget).calculatePath();
+            if (segment.isEmpty()) {
+                return fullSearch();
+            }
+            // The segment starts where the path so far ends
+            path.addAll(segment.subList(1, segment.size()));
+        }
+
+        // Each local search stays within MAX_DRONE_MOVES, but the joined path may not
+        if (path.size() - 1 > Constants.MAX_DRONE_MOVES) {
+            return fullSearch();
+        }
+        return path;
+    }
+
+    @Override
+    public double suboptimalityBound() {
+        return suboptimalityBound;
+    }
+
+    private List<Position> fullSearch() {
+        A_Star search = new A_Star(start, end, airspace, budget);
+        List<Position> path = search.calculatePath();
+        suboptimalityBound = search.suboptimalityBound();
+        return path;
+    }
+}
@@ -0,0 +1,188 @@
+package inf.ed.cw_ilp.model.pathFinder;
+
+import java.util.Arrays;
+
+/**
+ * IndexedHeap is the open list for the searches: a 4-ary min-heap of node indices with true decrease-key.
+ * Each node is in the heap at most once, and its heap slot is tracked so a cheaper route moves the
+ * existing entry up instead of adding a duplicate. A 4-ary layout keeps the heap shallow and sift-down cache friendly.
+ */
+public class IndexedHeap {
+
+    private static final int ARITY = 4;
+    private static final int NOT_IN_HEAP = -1;
+
+    private int[] nodes;     // heap slot -> node index
+    private double[] keys;   // heap slot -> priority
+    private int[] slots;     // node index -> heap slot
+    private int size;
+
+    public IndexedHeap(int capacity) {
+        nodes = new int[Math.max(16, capacity)];
+        keys = new double[nodes.length];
+        slots = new int[nodes.length];
+        Arrays.fill(slots, NOT_IN_HEAP);
+    }
+
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            slots[nodes[i]] = NOT_IN_HEAP;
+        }
+        size = 0;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Highest node index the heap can track without growing
+    public int capacity() {
+        return slots.length;
+    }
+
+    public boolean contains(int node) {
+        return node < slots.length && slots[node] != NOT_IN_HEAP;
+    }
+
+    public double key(int node) {
+        return keys[slots[node]];
+    }
+
+    // Adds the node, or lowers its key if it is already queued with a higher one
+    public void pushOrDecrease(int node, double key) {
+        if (contains(node)) {
+            int slot = slots[node];
+            if (key < keys[slot]) {
+                keys[slot] = key;
+                siftUp(slot);
+            }
+            return;
+        }
+        push(node, key);
+    }
+
+    // Sets the key of a queued node to any value, moving it up or down as needed
+    public void update(int node, double key) {
+        int slot = slots[node];
+        double old = keys[slot];
+        keys[slot] = key;
+        if (key < old) {
+            siftUp(slot);
+        } else {
+            siftDown(slot);
+        }
+    }
+
+    public void push(int node, double key) {
+        ensureNodeCapacity(node);
+        if (size == nodes.length) {
+            nodes = Arrays.copyOf(nodes, size * 2);
+            keys = Arrays.copyOf(keys, size * 2);
+        }
+        nodes[size] = node;
+        keys[size] = key;
+        slots[node] = size;
+        siftUp(size++);
+    }
+
+    public int peek() {
+        return nodes[0];
+    }
+
+    public double peekKey() {
+        return keys[0];
+    }
+
+    public int pop() {
+        int top = nodes[0];
+        slots[top] = NOT_IN_HEAP;
+        size--;
+        if (size > 0) {
+            nodes[0] = nodes[size];
+            keys[0] = keys[size];
+            slots[nodes[0]] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    // Removes a queued node wherever it sits in the heap
+    public void remove(int node) {
+        int slot = slots[node];
+        slots[node] = NOT_IN_HEAP;
+        size--;
+        if (slot < size) {
+            double removedKey = keys[slot];
+            nodes[slot] = nodes[size];
+            keys[slot] = keys[size];
+            slots[nodes[slot]] = slot;
+            if (keys[slot] < removedKey) {
+                siftUp(slot);
+            } else {
+                siftDown(slot);
+            }
+        }
+    }
+
+    private void siftUp(int slot) {
+        int node = nodes[slot];
+        double key = keys[slot];
+        while (slot > 0) {
+            int parent = (slot - 1) / ARITY;
+            if (keys[parent] <= key) {
+                break;
+            }
+            move(parent, slot);
+            slot = parent;
+        }
+        place(node, key, slot);
+    }
+
+    private void siftDown(int slot) {
+        int node = nodes[slot];
+        double key = keys[slot];
+        while (true) {
+            int firstChild = slot * ARITY + 1;
+            if (firstChild >= size) {
+                break;
+            }
+            int best = firstChild;
+            int lastChild = Math.min(firstChild + ARITY, size);
+            for (int child = firstChild + 1; child < lastChild; child++) {
+                if (keys[child] < keys[best]) {
+                    best = child;
+                }
+            }
+            if (keys[best] >= key) {
+                break;
+            }
+            move(best, slot);
+            slot = best;
+        }
+        place(node, key, slot);
+    }
+
+    private void move(int from, int to) {
+        nodes[to] = nodes[from];
+        keys[to] = keys[from];
+        slots[nodes[to]] = to;
+    }
+
+    private void place(int node, double key, int slot) {
+        nodes[slot] = node;
+        keys[slot] = key;
+        slots[node] = slot;
+    }
+
+    private void ensureNodeCapacity(int node) {
+        if (node >= slots.length) {
+            int old = slots.length;
+            slots = Arrays.copyOf(slots, Math.max(node + 1, old * 2));
+            Arrays.fill(slots, old, slots.length, NOT_IN_HEAP);
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package inf.ed.cw_ilp.model.pathFinder;
+
+import inf.ed.cw_ilp.model.Regions.Position;
+import inf.ed.cw_ilp.utils.Constants;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * JumpPointSearch is Jump Point Search generalised to the 16 compass moves.
+ * Away from region edges every move leads to a state with the same airspace status, so the many
+ * orderings of the same moves are all equivalent; the search keeps only one of them by running straight.
+ *
+ * A state reached by moving in direction d only continues in d and its two neighbouring directions,
+ * like a diagonal move in grid JPS. A jump runs along d and stops at the first point where something
+ * could change: the point is within a move of a no-fly zone or central area edge (a forced neighbour,
+ * which gets all 16 moves), it is close to the goal, or a ray along d - 1 or d + 1 from it would reach one of those.
+ * Only the jump points are stored and expanded; the moves in between are filled in when the path is built.
+ */
+public class JumpPointSearch implements PathFinder {
+
+    // Rays give up this far outside the box round the regions, start and end; nothing there can stop them
+    private static final double BOUNDS_MARGIN = 10 * Constants.MOVE_DISTANCE;
+
+    private final Position start;
+    private final Position end;
+    private final Airspace airspace;
+    private final SearchBudget budget;
+
+    // States taken off the open set by the last search, for comparing search variants
+    private int expandedNodes;
+
+    private double minLng;
+    private double maxLng;
+    private double minLat;
+    private double maxLat;
+
+    private static final ThreadLocal<NodeStore> WORKSPACE = ThreadLocal.withInitial(() -> new NodeStore(1 << 10));
+    private static final ThreadLocal<IndexedHeap> OPEN_SET = ThreadLocal.withInitial(() -> new IndexedHeap(1 << 10));
+
+    public JumpPointSearch(Position start, Position end, Airspace airspace) {
+        this(start, end, airspace, SearchBudget.standard());
+    }
+
+    public JumpPointSearch(Position start, Position end, Airspace airspace, SearchBudget budget) {
+        this.start = start;
+        this.end = end;
+        this.airspace = airspace;
+        this.budget = budget;
+    }
+
+    public int getExpandedNodes() {
+        return expandedNodes;
+    }
+
+    @Override
+    public List<Position> calculatePath() {
+        computeBounds();
+        try {
+            return search(WORKSPACE.get(), OPEN_SET.get());
+        } finally {
+            A_Star.release(WORKSPACE, OPEN_SET);
+        }
+    }
+
+    private List<Position> search(NodeStore nodes, IndexedHeap openSet) {
+        nodes.reset(start);
+        openSet.clear();
+        expandedNodes = 0;
+
+        int startNode = nodes.add(start.lng(), start.lat(), 0, distanceToEnd(start.lng(), start.lat()), NodeStore.NONE);
+        openSet.push(startNode, nodes.finalCost(startNode));
+
+        while (!openSet.isEmpty()) {
+            int currentNode = openSet.pop();
+            nodes.close(currentNode);
+            expandedNodes++;
+            budget.expand();
+            double currentLng = nodes.lng(currentNode);
+            double currentLat = nodes.lat(currentNode);
+
+            if (distanceToEnd(currentLng, currentLat) <= Constants.CLOSE_DISTANCE) {
+                return reconstructPath(nodes, currentNode);
+            }
+
+            // The start and forced neighbours try every move, anything else only its natural ones
+            int arrivedBy = nodes.direction(currentNode);
+            boolean expandAll = arrivedBy < 0 || airspace.isNearEdge(currentLng, currentLat);
+            int first = expandAll ? 0 : arrivedBy - 1;
+            int last = expandAll ? MoveTable.DIRECTIONS - 1 : arrivedBy + 1;
+
+            for (int turn = first; turn <= last; turn++) {
+                int direction = Math.floorMod(turn, MoveTable.DIRECTIONS);
+                int steps = jump(currentLng, currentLat, direction, true);
+                if (steps == 0) continue;
+
+                double jumpLng = currentLng, jumpLat = currentLat;
+                for (int i = 0; i < steps; i++) {
+                    jumpLng += MoveTable.dLng(direction);
+                    jumpLat += MoveTable.dLat(direction);
+                }
+
+                double newG = nodes.startCost(currentNode) + steps * Constants.MOVE_DISTANCE;
+                if (!budget.allowsRoute(newG, distanceToEnd(jumpLng, jumpLat))) continue;
+
+                int jumpNode = nodes.find(jumpLng, jumpLat);
+                if (jumpNode != NodeStore.NONE && (nodes.isClosed(jumpNode) || newG >= nodes.startCost(jumpNode))) {
+                    continue;
+                }
+
+                double newF = newG + distanceToEnd(jumpLng, jumpLat);
+                if (jumpNode == NodeStore.NONE) {
+                    jumpNode = nodes.add(jumpLng, jumpLat, newG, newF, currentNode);
+                } else {
+                    nodes.update(jumpNode, currentNode, newG, newF);
+                }
+                nodes.setDirection(jumpNode, direction);
+                openSet.pushOrDecrease(jumpNode, newF);
+            }
+        }
+
+        return new ArrayList<>(); // No valid path found
+    }
+
+    /**
+     * Runs from a point in one direction and returns the number of moves to the next jump point,
+     * or 0 if the ray is blocked or leaves the search bounds first. A primary ray also probes
+     * the two neighbouring directions at every step.
+     */
+    private int jump(double lng, double lat, int direction, boolean primary) {
+        double dLng = MoveTable.dLng(direction);
+        double dLat = MoveTable.dLat(direction);
+        boolean inCentralArea = airspace.isInCentralArea(lng, lat);
+
+        for (int steps = 1; ; steps++) {
+            double nextLng = lng + dLng;
+            double nextLat = lat + dLat;
+            if (nextLng < minLng || nextLng > maxLng || nextLat < minLat || nextLat > maxLat) {
+                return 0;
+            }
+
+            // Each move of the ray has to be legal on its own
+            if (airspace.isNoFlyMove(lng, lat, nextLng, nextLat)) {
+                return 0;
+            }
+            lng = nextLng;
+            lat = nextLat;
+            boolean nextInCentralArea = airspace.isInCentralArea(lng, lat);
+            if (inCentralArea && !nextInCentralArea) {
+                return 0;
+            }
+            inCentralArea = nextInCentralArea;
+
+            if (distanceToEnd(lng, lat) <= Constants.CLOSE_DISTANCE || airspace.isNearEdge(lng, lat)) {
+                return steps;
+            }
+            if (primary) {
+                int left = (direction + MoveTable.DIRECTIONS - 1) % MoveTable.DIRECTIONS;
+                int right = (direction + 1) % MoveTable.DIRECTIONS;
+                if (jump(lng, lat, left, false) != 0 || jump(lng, lat, right, false) != 0) {
+                    return steps;
+                }
+            }
+        }
+    }
+
+    // Bounding box of everything that can stop a ray, with a margin
+    private void computeBounds() {
+        minLng = Math.min(start.lng(), end.lng());
+        maxLng = Math.max(start.lng(), end.lng());
+        minLat = Math.min(start.lat(), end.lat());
+        maxLat = Math.max(start.lat(), end.lat());
+
+        List<nameData.NamedRegion> regions = new ArrayList<>(airspace.getNoFlyZones());
+        regions.add(airspace.getCentralArea());
+        for (nameData.NamedRegion region : regions) {
+            if (region == null || region.getCoordinates() == null) continue;
+            for (Position vertex : region.getCoordinates()) {
+                minLng = Math.min(minLng, vertex.lng());
+                maxLng = Math.max(maxLng, vertex.lng());
+                minLat = Math.min(minLat, vertex.lat());
+                maxLat = Math.max(maxLat, vertex.lat());
+            }
+        }
+        minLng -= BOUNDS_MARGIN;
+        maxLng += BOUNDS_MARGIN;
+        minLat -= BOUNDS_MARGIN;
+        maxLat += BOUNDS_MARGIN;
+    }
+
+    private double distanceToEnd(double lng, double lat) {
+        double dLng = lng - end.lng();
+        double dLat = lat - end.lat();
+        return Math.sqrt(dLng * dLng + dLat * dLat);
+    }
+
+    // Jump points are joined by straight runs, so the moves in between are replayed from each parent
+    private List<Position> reconstructPath(NodeStore nodes, int currentNode) {
+        List<Position> path = new ArrayList<>();
+        while (nodes.parent(currentNode) != NodeStore.NONE) {
+            int parentNode = nodes.parent(currentNode);
+            int direction = nodes.direction(currentNode);
+            int steps = (int) Math.round((nodes.startCost(currentNode) - nodes.startCost(parentNode)) / Constants.MOVE_DISTANCE);
+
+            List<Position> run = new ArrayList<>(steps);
+            double lng = nodes.lng(parentNode), lat = nodes.lat(parentNode);
+            for (int i = 0; i < steps; i++) {
+                lng += MoveTable.dLng(direction);
+                lat += MoveTable.dLat(direction);
+                run.add(new Position(lng, lat));
+            }
+            Collections.reverse(run);
+            path.addAll(run);
+            currentNode = parentNode;
+        }
+        path.add(nodes.position(currentNode));
+        Collections.reverse(path);
+        return path;
+    }
+}
@@ -0,0 +1,307 @@
+package inf.ed.cw_ilp.model.pathFinder;
+
+import inf.ed.cw_ilp.model.Regions.Position;
+import inf.ed.cw_ilp.model.Regions.PreparedRegion;
+import inf.ed.cw_ilp.utils.Constants;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * LandmarkHeuristic is the ALT heuristic (A*, landmarks and the triangle inequality). A few landmarks each get
+ * the number of moves from every cell to that landmark in a relaxed cell graph. Flying from p to the goal and on
+ * to a landmark is at least as long as flying from p to the landmark, so moves(p, landmark) - moves(goal, landmark)
+ * is a lower bound on the moves from p to the goal that, unlike the lattice heuristic, knows about the no-fly zones
+ * in between.
+ *
+ * The cells are DistanceField's, half a move across. A real move from anywhere in a cell lands in one of the cells
+ * the moved cell overlaps, so the graph links a cell to all of those, and only cells wholly inside a no-fly zone
+ * are left out; the central-area rule is dropped too. Every route the drone can fly is then a walk in the graph, so
+ * graph distances never exceed real ones. The graph is symmetric, so they obey the triangle inequality. Instead of
+ * the goal's own cell, the bound uses the farthest cell within CLOSE_DISTANCE of the goal, since a path may end
+ * anywhere there. Each bound changes by at most one move per move, so the heuristic stays consistent as well.
+ *
+ * The distances belong to the Airspace, so they are rebuilt when the no-fly data changes.
+ * The estimate is the best of every landmark's bound and the lattice heuristic.
+ */
+public class LandmarkHeuristic implements Heuristic {
+
+    // Landmarks sit this far outside the corners of the regions' bounding box
+    private static final double LANDMARK_MARGIN = 0.01;
+
+    private final Landmarks landmarks;
+    private final LatticeHeuristic lattice;
+    // Most moves to each landmark from anywhere a path may end, -1 if the landmark gives no bound for this goal
+    private final int[] goalMoves;
+
+    public LandmarkHeuristic(Position goal, Airspace airspace) {
+        this.landmarks = Landmarks.forAirspace(airspace);
+        this.lattice = new LatticeHeuristic(goal);
+        this.goalMoves = new int[landmarks.size()];
+        for (int i = 0; i < goalMoves.length; i++) {
+            goalMoves[i] = landmarks.farthestMovesNear(i, goal.lng(), goal.lat(), Constants.CLOSE_DISTANCE);
+        }
+    }
+
+    // How many landmarks give a bound for this goal
+    public int landmarksInUse() {
+        return (int) Arrays.stream(goalMoves).filter(moves -> moves >= 0).count();
+    }
+
+    @Override
+    public double estimate(double lng, double lat) {
+        double estimate = lattice.estimate(lng, lat);
+        for (int i = 0; i < goalMoves.length; i++) {
+            if (goalMoves[i] < 0) continue;
+            // A point the landmark can't reach can't reach any cell that counted towards goalMoves either
+            int moves = landmarks.movesFrom(i, lng, lat);
+            if (moves < 0) continue;
+            estimate = Math.max(estimate, (moves - goalMoves[i]) * Constants.MOVE_DISTANCE);
+        }
+        return estimate;
+    }
+
+    /**
+     * The landmark distances for one airspace: Appleton Tower, and the four corners round the regions,
+     * which between them lie behind any goal.
+     */
+    public static final class Landmarks {
+
+        private static final int UNREACHED = -1;
+
+        // Slack in cell units when working out which cells a move can land in, well above the rounding in cellOf
+        private static final double CELL_SLACK = 1e-10;
+
+        private final double originLng;
+        private final double originLat;
+        private final int columns;
+        private final int rows;
+        // Moves from every cell to each landmark, UNREACHED where the graph has no walk
+        private final List<int[]> moves;
+
+        private Landmarks(double originLng, double originLat, int columns, int rows, List<int[]> moves) {
+            this.originLng = originLng;
+            this.originLat = originLat;
+            this.columns = columns;
+            this.rows = rows;
+            this.moves = moves;
+        }
+
+        public static Landmarks forAirspace(Airspace airspace) {
+            return airspace.derived(Landmarks.class, Landmarks::build);
+        }
+
+        public int size() {
+            return moves.size();
+        }
+
+        // Moves from the point's cell to the landmark, or -1 if it is off the grid or can't reach it
+        int movesFrom(int landmark, double lng, double lat) {
+            int cell = cellOf(lng, lat);
+            return cell < 0 ? UNREACHED : moves.get(landmark)[cell];
+        }
+
+        // Most moves to the landmark from any cell within radius of the point that reaches it at all,
+        // or -1 if there is none or the area runs off the grid
+        int farthestMovesNear(int landmark, double lng, double lat, double radius) {
+            int first = cellOf(lng - radius, lat - radius);
+            int last = cellOf(lng + radius, lat + radius);
+            if (first < 0 || last < 0) {
+                return UNREACHED;
+            }
+            int[] toLandmark = moves.get(landmark);
+            int farthest = UNREACHED;
+            for (int row = first / columns; row <= last / columns; row++) {
+                for (int column = first % columns; column <= last % columns; column++) {
+                    farthest = Math.max(farthest, toLandmark[row * columns + column]);
+                }
+            }
+            return farthest;
+        }
+
+        private int cellOf(double lng, double lat) {
+            int column = (int) Math.floor((lng - originLng) / DistanceField.CELL_SIZE);
+            int row = (int) Math.floor((lat - originLat) / DistanceField.CELL_SIZE);
+            if (column < 0 || row < 0 || column >= columns || row >= rows) {
+                return -1;
+            }
+            return row * columns + column;
+        }
+
+        private static Landmarks build(Airspace airspace) {
+            double minLng = Constants.APPLETON_TOWER.lng(), maxLng = minLng;
+            double minLat = Constants.APPLETON_TOWER.lat(), maxLat = minLat;
+            List<nameData.NamedRegion> regions = new ArrayList<>(airspace.getNoFlyZones());
+            regions.add(airspace.getCentralArea());
+            for (nameData.NamedRegion region : regions) {
+                if (region.getCoordinates() == null) continue;
+                for (Position vertex : region.getCoordinates()) {
+                    minLng = Math.min(minLng, vertex.lng());
+                    maxLng = Math.max(maxLng, vertex.lng());
+                    minLat = Math.min(minLat, vertex.lat());
+                    maxLat = Math.max(maxLat, vertex.lat());
+                }
+            }
+            // Same extent as a DistanceField, which takes in the corners and every restaurant we deliver from
+            double originLng = minLng - DistanceField.MARGIN;
+            double originLat = minLat - DistanceField.MARGIN;
+            int columns = (int) Math.ceil((maxLng + DistanceField.MARGIN - originLng) / DistanceField.CELL_SIZE);
+            int rows = (int) Math.ceil((maxLat + DistanceField.MARGIN - originLat) / DistanceField.CELL_SIZE);
+            Landmarks grid = new Landmarks(originLng, originLat, columns, rows, List.of());
+
+            boolean[] blocked = grid.blockedCells(airspace);
+            int[] steps = steps(columns);
+            List<int[]> moves = new ArrayList<>();
+            for (Position landmark : List.of(Constants.APPLETON_TOWER,
+                    new Position(minLng - LANDMARK_MARGIN, minLat - LANDMARK_MARGIN),
+                    new Position(maxLng + LANDMARK_MARGIN, minLat - LANDMARK_MARGIN),
+                    new Position(maxLng + LANDMARK_MARGIN, maxLat + LANDMARK_MARGIN),
+                    new Position(minLng - LANDMARK_MARGIN, maxLat + LANDMARK_MARGIN))) {
+                moves.add(flood(grid.cellOf(landmark.lng(), landmark.lat()), blocked, columns, rows, steps));
+            }
+            return new Landmarks(originLng, originLat, columns, rows, List.copyOf(moves));
+        }
+
+        /**
+         * Cells no legal point can be in: those wholly inside one no-fly zone. A cell none of the zone's edges
+         * touches is either all inside it or all outside, which its centre tells. Zones are taken one at a time,
+         * as the edge of one zone running through another doesn't open any space.
+         */
+        private boolean[] blockedCells(Airspace airspace) {
+            boolean[] blocked = new boolean[columns * rows];
+            boolean[] touched = new boolean[columns * rows];
+            for (nameData.NamedRegion zone : airspace.getNoFlyZones()) {
+                Position[] vertices = zone.getCoordinates();
+                if (vertices == null || vertices.length < 3) continue;
+                int[] box = cellBox(vertices);
+                if (box == null) continue;
+                for (int i = 0; i < vertices.length; i++) {
+                    markTouched(vertices[i], vertices[(i + 1) % vertices.length], touched);
+                }
+                for (int row = box[1]; row <= box[3]; row++) {
+                    for (int column = box[0]; column <= box[2]; column++) {
+                        int cell = row * columns + column;
+                        if (!touched[cell] && PreparedRegion.contains(vertices, new Position(
+                                originLng + (column + 0.5) * DistanceField.CELL_SIZE, originLat + (row + 0.5) * DistanceField.CELL_SIZE))) {
+                            blocked[cell] = true;
+                        }
+                        touched[cell] = false;
+                    }
+                }
+            }
+            return blocked;
+        }
+
+        // {firstColumn, firstRow, lastColumn, lastRow} of the cells the vertices span, clipped to the grid
+        private int[] cellBox(Position[] vertices) {
+            double minLng = Double.POSITIVE_INFINITY, maxLng = Double.NEGATIVE_INFINITY;
+            double minLat = Double.POSITIVE_INFINITY, maxLat = Double.NEGATIVE_INFINITY;
+            for (Position vertex : vertices) {
+                minLng = Math.min(minLng, vertex.lng());
+                maxLng = Math.max(maxLng, vertex.lng());
+                minLat = Math.min(minLat, vertex.lat());
+                maxLat = Math.max(maxLat, vertex.lat());
+            }
+            int firstColumn = Math.max(0, (int) Math.floor((minLng - originLng) / DistanceField.CELL_SIZE) - 1);
+            int firstRow = Math.max(0, (int) Math.floor((minLat - originLat) / DistanceField.CELL_SIZE) - 1);
+            int lastColumn = Math.min(columns - 1, (int) Math.floor((maxLng - originLng) / DistanceField.CELL_SIZE) + 1);
+            int lastRow = Math.min(rows - 1, (int) Math.floor((maxLat - originLat) / DistanceField.CELL_SIZE) + 1);
+            return firstColumn > lastColumn || firstRow > lastRow ? null : new int[] {firstColumn, firstRow, lastColumn, lastRow};
+        }
+
+        // Marks every cell whose closed box the edge meets, with a cell's slack either side for rounding
+        private void markTouched(Position from, Position to, boolean[] touched) {
+            int[] box = cellBox(new Position[] {from, to});
+            if (box == null) return;
+            for (int row = box[1]; row <= box[3]; row++) {
+                for (int column = box[0]; column <= box[2]; column++) {
+                    double slack = CELL_SLACK * DistanceField.CELL_SIZE;
+                    double west = originLng + column * DistanceField.CELL_SIZE - slack, east = west + DistanceField.CELL_SIZE + 2 * slack;
+                    double south = originLat + row * DistanceField.CELL_SIZE - slack, north = south + DistanceField.CELL_SIZE + 2 * slack;
+                    if (meetsBox(from, to, west, south, east, north)) {
+                        touched[row * columns + column] = true;
+                    }
+                }
+            }
+        }
+
+        // Liang-Barsky: whether the segment has a point inside the closed box
+        private static boolean meetsBox(Position from, Position to, double west, double south, double east, double north) {
+            double dLng = to.lng() - from.lng();
+            double dLat = to.lat() - from.lat();
+            double[] p = {-dLng, dLng, -dLat, dLat};
+            double[] q = {from.lng() - west, east - from.lng(), from.lat() - south, north - from.lat()};
+            double enter = 0, leave = 1;
+            for (int i = 0; i < 4; i++) {
+                if (p[i] == 0) {
+                    if (q[i] < 0) return false;
+                } else {
+                    double t = q[i] / p[i];
+                    if (p[i] < 0) {
+                        enter = Math.max(enter, t);
+                    } else {
+                        leave = Math.min(leave, t);
+                    }
+                }
+            }
+            return enter <= leave;
+        }
+
+        /**
+         * Every cell offset, as {dColumn, dRow} pairs flattened, that a move can land in from somewhere in a cell.
+         * A move shifts the cell by (dLng, dLat), which overlaps two columns unless dLng is a whole number of cells,
+         * and likewise two rows.
+         */
+        private static int[] steps(int columns) {
+            Set<List<Integer>> offsets = new LinkedHashSet<>();
+            for (int direction = 0; direction < MoveTable.DIRECTIONS; direction++) {
+                double dColumn = MoveTable.dLng(direction) / DistanceField.CELL_SIZE;
+                double dRow = MoveTable.dLat(direction) / DistanceField.CELL_SIZE;
+                for (int c = (int) Math.floor(dColumn - CELL_SLACK); c <= (int) Math.floor(dColumn + CELL_SLACK) + 1; c++) {
+                    for (int r = (int) Math.floor(dRow - CELL_SLACK); r <= (int) Math.floor(dRow + CELL_SLACK) + 1; r++) {
+                        offsets.add(List.of(c, r));
+                    }
+                }
+            }
+            int[] steps = new int[2 * offsets.size()];
+            int i = 0;
+            for (List<Integer> offset : offsets) {
+                steps[i++] = offset.get(0);
+                steps[i++] = offset.get(1);
+            }
+            return steps;
+        }
+
+        // Breadth-first over the graph from the landmark's cell; every link is one move and works both ways
+        private static int[] flood(int landmark, boolean[] blocked, int columns, int rows, int[] steps) {
+            int[] moves = new int[columns * rows];
+            Arrays.fill(moves, UNREACHED);
+            if (landmark < 0 || blocked[landmark]) {
+                return moves;
+            }
+            int[] queue = new int[columns * rows];
+            int head = 0, tail = 0;
+            moves[landmark] = 0;
+            queue[tail++] = landmark;
+            while (head < tail) {
+                int cell = queue[head++];
+                int column = cell % columns;
+                int row = cell / columns;
+                int next = moves[cell] + 1;
+                for (int i = 0; i < steps.length; i += 2) {
+                    int c = column + steps[i];
+                    int r = row + steps[i + 1];
+                    if (c < 0 || r < 0 || c >= columns || r >= rows) continue;
+                    int neighbour = r * columns + c;
+                    if (moves[neighbour] != UNREACHED || blocked[neighbour]) continue;
+                    moves[neighbour] = next;
+                    queue[tail++] = neighbour;
+                }
+            }
+            return moves;
+        }
+    }
+}
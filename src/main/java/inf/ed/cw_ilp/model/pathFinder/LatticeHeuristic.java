@@ -0,0 +1,55 @@
+package inf.ed.cw_ilp.model.pathFinder;
+
+import inf.ed.cw_ilp.model.Regions.Position;
+import inf.ed.cw_ilp.utils.Constants;
+
+/**
+ * LatticeHeuristic is the exact shortest distance on open ground for a drone limited to the 16 compass moves.
+ * A straight line between two compass directions can't be flown; the best the drone can do is a mix of the two
+ * directions either side of it, which is up to 2% longer than the straight line (half-way between two directions).
+ * The estimate is the length of that mix, less the most the goal radius can save, rounded up to whole moves,
+ * so it is tighter than the straight-line distance but still never more than the real cost.
+ */
+public class LatticeHeuristic implements Heuristic {
+
+    // Angle between two neighbouring compass directions
+    private static final double SECTOR = 2 * Math.PI / MoveTable.DIRECTIONS;
+    private static final double SIN_SECTOR = Math.sin(SECTOR);
+
+    // Flying within CLOSE_DISTANCE of the goal can save at most this much on the mix of directions
+    private static final double GOAL_ALLOWANCE = Constants.CLOSE_DISTANCE / Math.cos(SECTOR / 2);
+
+    // Kept off the move count before rounding up, so rounding error in the costs (the fields store floats)
+    // can't add a move that isn't needed
+    private static final double ROUNDING = 1e-3;
+
+    private final Position goal;
+
+    public LatticeHeuristic(Position goal) {
+        this.goal = goal;
+    }
+
+    @Override
+    public double estimate(double lng, double lat) {
+        return wholeMoves(distance(lng - goal.lng(), lat - goal.lat()) - GOAL_ALLOWANCE);
+    }
+
+    // Paths are made of whole moves, so a lower bound that leaves a fraction of a move still means a full one
+    static double wholeMoves(double cost) {
+        if (cost <= 0) {
+            return 0;
+        }
+        return Math.ceil(cost / Constants.MOVE_DISTANCE - ROUNDING) * Constants.MOVE_DISTANCE;
+    }
+
+    // Length of the cheapest mix of compass moves covering the offset (dLng, dLat)
+    static double distance(double dLng, double dLat) {
+        double length = Math.hypot(dLng, dLat);
+        if (length == 0) {
+            return 0;
+        }
+        // Angle past the nearest compass direction anticlockwise from the offset
+        double offset = Math.atan2(Math.abs(dLat), Math.abs(dLng)) % SECTOR;
+        return length * (Math.sin(SECTOR - offset) + Math.sin(offset)) / SIN_SECTOR;
+    }
+}
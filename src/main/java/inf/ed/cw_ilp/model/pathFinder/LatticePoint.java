@@ -0,0 +1,43 @@
+package inf.ed.cw_ilp.model.pathFinder;
+
+import inf.ed.cw_ilp.model.Regions.Position;
+
+/**
+ * LatticePoint is a drone position as a whole number of lattice units east (x) and north (y) of an origin,
+ * normally the start of a search. Every move in MoveTable is a whole number of units, so a point has one
+ * representation however the moves that reached it were ordered, and two routes to the same point compare equal.
+ *
+ * A unit is 2^-44 degrees (about 6 nm), a power of two no finer than the spacing of doubles anywhere in longitude
+ * or latitude range. origin + units * UNIT is rounded at most once, so a point always converts to the same Position
+ * and back, and away from the equator and the prime meridian it is not rounded at all: adding MoveTable offsets
+ * to a Position one at a time then lands on exactly the same double as the lattice point.
+ */
+public record LatticePoint(long x, long y) {
+
+    public static final double UNIT = 0x1p-44;
+
+    public static final LatticePoint ORIGIN = new LatticePoint(0, 0);
+
+    // The lattice point at (lng, lat); positions off the lattice go to the nearest point
+    public static LatticePoint of(Position origin, double lng, double lat) {
+        return new LatticePoint(units(lng - origin.lng()), units(lat - origin.lat()));
+    }
+
+    public static LatticePoint of(Position origin, Position position) {
+        return of(origin, position.lng(), position.lat());
+    }
+
+    // Whole lattice units in an offset of this many degrees
+    public static long units(double degrees) {
+        return Math.round(degrees / UNIT);
+    }
+
+    public Position toPosition(Position origin) {
+        return new Position(origin.lng() + x * UNIT, origin.lat() + y * UNIT);
+    }
+
+    // The point one move away in the given MoveTable direction
+    public LatticePoint step(int direction) {
+        return new LatticePoint(x + MoveTable.dx(direction), y + MoveTable.dy(direction));
+    }
+}
@@ -0,0 +1,355 @@
+package inf.ed.cw_ilp.model.pathFinder;
+
+import inf.ed.cw_ilp.model.Regions.Position;
+import inf.ed.cw_ilp.utils.Constants;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * LifelongPlanningAStar is LPA*, an A* search that keeps its state between runs so that a change to the
+ * no-fly zones or the central area only costs as much as the part of the search it affects.
+ * Every state has its cost g from the last run and rhs, the cost its best predecessor offers now;
+ * a state where the two differ is inconsistent and waits in the open set. The first run is a plain A* search.
+ * On replan() only the states that changed airspace status (and the moves out of them) are re-evaluated,
+ * and the search carries on from there until the goal is consistent again.
+ *
+ * The restaurant and Appleton Tower never move, so LPA* is enough; D* Lite would only add support for
+ * a start that moves during the flight. The heuristic has to stay the same across runs, so the planner
+ * uses the lattice heuristic, which doesn't depend on the airspace. One planner is kept per restaurant;
+ * it is not thread-safe.
+ */
+public class LifelongPlanningAStar implements PathFinder {
+
+    private static final double INFINITY = Double.POSITIVE_INFINITY;
+
+    private final Position start;
+    private final Position end;
+    private final Heuristic heuristic;
+    private Airspace airspace;
+    private SearchBudget budget;
+
+    private final NodeStore nodes = new NodeStore(1 << 10);
+    private final IndexedHeap openSet = new IndexedHeap(1 << 10);
+
+    // Per-state columns alongside the node store
+    private double[] startCost = new double[1 << 10];
+    private double[] lookahead = new double[1 << 10];
+    private boolean[] noFly = new boolean[1 << 10];
+    private boolean[] central = new boolean[1 << 10];
+    // Moves into each state from the states that have been expanded, as linked lists: firstEdge per state,
+    // then edgeFrom and nextEdge per move. Most states are never expanded, so this is far smaller than 16 slots each.
+    private int[] firstEdge = new int[1 << 10];
+    private int[] edgeFrom = new int[1 << 12];
+    private int[] nextEdge = new int[1 << 12];
+    private int edgeCount;
+
+    // States within CLOSE_DISTANCE of the end; a virtual goal state follows all of them at no cost
+    private int[] goalStates = new int[16];
+    private int goalStateCount;
+    private double goalCost = INFINITY;
+    private double goalLookahead = INFINITY;
+
+    private int startNode = NodeStore.NONE;
+
+    // States taken off the open set by the last run, and states re-evaluated because the airspace changed
+    private int expandedNodes;
+    private int changedNodes;
+
+    public LifelongPlanningAStar(Position start, Position end, Airspace airspace) {
+        this(start, end, airspace, SearchBudget.standard());
+    }
+
+    public LifelongPlanningAStar(Position start, Position end, Airspace airspace, SearchBudget budget) {
+        this.start = start;
+        this.end = end;
+        this.airspace = airspace;
+        this.budget = budget;
+        this.heuristic = Heuristic.lattice(end);
+        nodes.reset(start);
+    }
+
+    public Airspace getAirspace() {
+        return airspace;
+    }
+
+    public int getExpandedNodes() {
+        return expandedNodes;
+    }
+
+    public int getChangedNodes() {
+        return changedNodes;
+    }
+
+    // Shortest path in the current airspace; the first call runs the whole search, later ones reuse it
+    @Override
+    public List<Position> calculatePath() {
+        expandedNodes = 0;
+        if (startNode == NodeStore.NONE) {
+            startNode = discover(start.lng(), start.lat());
+            lookahead[startNode] = 0;
+            openSet.push(startNode, key(startNode));
+        }
+        // Ties are broken towards the goal, so states with the same f-cost as the path can be left inconsistent
+        // after a change. If one of them lies on the path, the search carries on until it has been dealt with.
+        double limit = -INFINITY;
+        while (true) {
+            computeShortestPath(limit);
+            if (goalCost == INFINITY) {
+                return new ArrayList<>(); // No valid path found
+            }
+            int stale = firstInconsistentOnPath();
+            if (stale == NodeStore.NONE) {
+                return extractPath();
+            }
+            if (!openSet.contains(stale)) {
+                openSet.push(stale, key(stale));
+            }
+            limit = openSet.key(stale);
+        }
+    }
+
+    /**
+     * Switches to a new airspace and repairs the search. Only states inside the regions that were added, removed
+     * or moved are looked at. A state whose no-fly or central-area status changed has different moves into it and
+     * out of it, so it and its successors are re-evaluated. So is a state near a region edge in either airspace,
+     * since a move into or out of it may now clip a zone, or no longer does; nothing else is.
+     * If the budget runs out the planner stays usable and the next call carries on.
+     */
+    public List<Position> replan(Airspace newAirspace, SearchBudget newBudget) {
+        budget = newBudget;
+        changedNodes = 0;
+        Airspace previous = airspace;
+        double[] bounds = newAirspace.changedBounds(previous);
+        airspace = newAirspace;
+        if (bounds != null) {
+            for (int node = 0; node < nodes.size(); node++) {
+                if (!within(bounds, nodes.lng(node), nodes.lat(node))) continue;
+
+                double lng = nodes.lng(node), lat = nodes.lat(node);
+                boolean nowNoFly = airspace.isNoFly(lng, lat);
+                boolean nowCentral = airspace.isInCentralArea(lng, lat);
+                boolean nearEdge = airspace.isNearEdge(lng, lat) || previous.isNearEdge(lng, lat);
+                if (nowNoFly == noFly[node] && nowCentral == central[node] && !nearEdge) continue;
+
+                noFly[node] = nowNoFly;
+                central[node] = nowCentral;
+                changedNodes++;
+                updateState(node);
+                for (int direction = 0; direction < MoveTable.DIRECTIONS; direction++) {
+                    int successor = nodes.find(lng + MoveTable.dLng(direction), lat + MoveTable.dLat(direction));
+                    if (successor != NodeStore.NONE) {
+                        updateState(successor);
+                    }
+                }
+            }
+        }
+        return calculatePath();
+    }
+
+    // Runs until the goal is consistent and no state in the open set has a key below the goal's or up to limit
+    private void computeShortestPath(double limit) {
+        while (true) {
+            double goalKey = Math.min(goalCost, goalLookahead);
+            double topKey = openSet.isEmpty() ? INFINITY : openSet.peekKey();
+            boolean pending = topKey < goalKey || topKey <= limit;
+            if (goalCost == goalLookahead && !pending) {
+                return;
+            }
+            // The virtual goal comes off the open set like any other state once its key is the lowest
+            if (goalCost != goalLookahead && goalKey <= topKey) {
+                goalCost = goalCost > goalLookahead ? goalLookahead : INFINITY;
+                continue;
+            }
+
+            if (openSet.isEmpty()) {
+                return;
+            }
+            // Counted before the pop, so running out of budget leaves every inconsistent state in the open set
+            budget.expand();
+            int node = openSet.pop();
+            expandedNodes++;
+            double lng = nodes.lng(node);
+            double lat = nodes.lat(node);
+
+            if (startCost[node] > lookahead[node]) {
+                // A cheaper route reached this state: settle it and offer it to its successors
+                startCost[node] = lookahead[node];
+                for (int direction = 0; direction < MoveTable.DIRECTIONS; direction++) {
+                    double nextLng = lng + MoveTable.dLng(direction);
+                    double nextLat = lat + MoveTable.dLat(direction);
+                    int successor = nodes.find(nextLng, nextLat);
+                    if (successor == NodeStore.NONE) {
+                        successor = discover(nextLng, nextLat);
+                    }
+                    addEdge(node, successor);
+                    updateState(successor);
+                }
+            } else {
+                // The route this state was settled on got dearer: unsettle it and everything that relied on it
+                startCost[node] = INFINITY;
+                updateState(node);
+                for (int direction = 0; direction < MoveTable.DIRECTIONS; direction++) {
+                    int successor = nodes.find(lng + MoveTable.dLng(direction), lat + MoveTable.dLat(direction));
+                    if (successor != NodeStore.NONE) {
+                        updateState(successor);
+                    }
+                }
+            }
+            if (isGoalState(node)) {
+                updateGoal();
+            }
+        }
+    }
+
+    // Recomputes a state's lookahead from its predecessors and puts it in the open set if it is inconsistent
+    private void updateState(int node) {
+        if (node != startNode) {
+            double best = INFINITY;
+            for (int edge = firstEdge[node]; edge != NodeStore.NONE; edge = nextEdge[edge]) {
+                if (isLegalMove(edgeFrom[edge], node)) {
+                    best = Math.min(best, startCost[edgeFrom[edge]] + Constants.MOVE_DISTANCE);
+                }
+            }
+            lookahead[node] = best;
+        }
+
+        double cost = Math.min(startCost[node], lookahead[node]);
+        // States that can't reach the goal within MAX_DRONE_MOVES stay out of the open set
+        if (startCost[node] != lookahead[node] && budget.allowsEstimate(cost, heuristic.estimate(nodes.lng(node), nodes.lat(node)))) {
+            if (openSet.contains(node)) {
+                openSet.update(node, key(node));
+            } else {
+                openSet.push(node, key(node));
+            }
+        } else if (openSet.contains(node)) {
+            openSet.remove(node);
+        }
+    }
+
+    private void updateGoal() {
+        double best = INFINITY;
+        for (int i = 0; i < goalStateCount; i++) {
+            best = Math.min(best, startCost[goalStates[i]]);
+        }
+        goalLookahead = best;
+    }
+
+    // With a move of margin, so the grids' treatment of region edges can't matter
+    private static boolean within(double[] bounds, double lng, double lat) {
+        return lng >= bounds[0] - Constants.MOVE_DISTANCE && lat >= bounds[1] - Constants.MOVE_DISTANCE
+                && lng <= bounds[2] + Constants.MOVE_DISTANCE && lat <= bounds[3] + Constants.MOVE_DISTANCE;
+    }
+
+    // Same rules as A_Star: never into or across a no-fly zone, never out of the central area once inside it
+    private boolean isLegalMove(int from, int to) {
+        return !noFly[to] && !(central[from] && !central[to])
+                && !airspace.crossesNoFlyEdge(nodes.lng(from), nodes.lat(from), nodes.lng(to), nodes.lat(to));
+    }
+
+    private double key(int node) {
+        return Math.min(startCost[node], lookahead[node])
+                + A_Star.TIE_BREAK * heuristic.estimate(nodes.lng(node), nodes.lat(node));
+    }
+
+    private boolean isGoalState(int node) {
+        return Math.hypot(nodes.lng(node) - end.lng(), nodes.lat(node) - end.lat()) <= Constants.CLOSE_DISTANCE;
+    }
+
+    private int discover(double lng, double lat) {
+        int node = nodes.add(lng, lat, 0, 0, NodeStore.NONE);
+        ensureCapacity(node + 1);
+        startCost[node] = INFINITY;
+        lookahead[node] = INFINITY;
+        noFly[node] = airspace.isNoFly(lng, lat);
+        central[node] = airspace.isInCentralArea(lng, lat);
+        firstEdge[node] = NodeStore.NONE;
+        if (isGoalState(node)) {
+            if (goalStateCount == goalStates.length) {
+                goalStates = Arrays.copyOf(goalStates, goalStateCount * 2);
+            }
+            goalStates[goalStateCount++] = node;
+        }
+        return node;
+    }
+
+    private void ensureCapacity(int size) {
+        if (size <= startCost.length) {
+            return;
+        }
+        int capacity = Math.max(size, startCost.length * 2);
+        startCost = Arrays.copyOf(startCost, capacity);
+        lookahead = Arrays.copyOf(lookahead, capacity);
+        noFly = Arrays.copyOf(noFly, capacity);
+        central = Arrays.copyOf(central, capacity);
+        firstEdge = Arrays.copyOf(firstEdge, capacity);
+    }
+
+    // Records the move from one state into another, once
+    private void addEdge(int from, int to) {
+        for (int edge = firstEdge[to]; edge != NodeStore.NONE; edge = nextEdge[edge]) {
+            if (edgeFrom[edge] == from) {
+                return;
+            }
+        }
+        if (edgeCount == edgeFrom.length) {
+            edgeFrom = Arrays.copyOf(edgeFrom, edgeCount * 2);
+            nextEdge = Arrays.copyOf(nextEdge, edgeCount * 2);
+        }
+        edgeFrom[edgeCount] = from;
+        nextEdge[edgeCount] = firstEdge[to];
+        firstEdge[to] = edgeCount++;
+    }
+
+    // The first state on the path back from the goal whose cost is out of date, or NONE if the whole path is sound
+    private int firstInconsistentOnPath() {
+        int node = bestGoalState();
+        for (int steps = 0; node != startNode && steps <= nodes.size(); steps++) {
+            if (startCost[node] != lookahead[node]) {
+                return node;
+            }
+            node = bestPredecessor(node);
+            if (node == NodeStore.NONE) {
+                throw new IllegalStateException("Planner state has a consistent state with no predecessor");
+            }
+        }
+        return NodeStore.NONE;
+    }
+
+    // Walks back from the cheapest goal state, taking the predecessor each state's cost came from
+    private List<Position> extractPath() {
+        List<Position> path = new ArrayList<>();
+        int node = bestGoalState();
+        while (node != startNode) {
+            path.add(nodes.position(node));
+            node = bestPredecessor(node);
+        }
+        path.add(nodes.position(startNode));
+        Collections.reverse(path);
+        return path;
+    }
+
+    private int bestGoalState() {
+        for (int i = 0; i < goalStateCount; i++) {
+            if (startCost[goalStates[i]] == goalCost) {
+                return goalStates[i];
+            }
+        }
+        throw new IllegalStateException("Planner goal cost matches no goal state");
+    }
+
+    private int bestPredecessor(int node) {
+        int best = NodeStore.NONE;
+        double bestCost = INFINITY;
+        for (int edge = firstEdge[node]; edge != NodeStore.NONE; edge = nextEdge[edge]) {
+            int predecessor = edgeFrom[edge];
+            if (isLegalMove(predecessor, node) && startCost[predecessor] < bestCost) {
+                bestCost = startCost[predecessor];
+                best = predecessor;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,67 @@
+package inf.ed.cw_ilp.model.pathFinder;
+
+import inf.ed.cw_ilp.utils.Constants;
+
+/**
+ * MoveTable holds the (dLng, dLat) offset of every compass move the drone can make, computed once.
+ * 0 and 360 degrees in Constants.VALID_ANGLES are the same move, so the table has 16 directions, not 17.
+ * Direction d and direction opposite(d) undo each other, which the backward searches rely on.
+ * Offsets are rounded to whole LatticePoint units, so adding them is exact and independent of order.
+ */
+public final class MoveTable {
+
+    public static final int DIRECTIONS = 16;
+
+    private static final double[] ANGLES = new double[DIRECTIONS];
+    private static final double[] D_LNG = new double[DIRECTIONS];
+    private static final double[] D_LAT = new double[DIRECTIONS];
+    private static final long[] DX = new long[DIRECTIONS];
+    private static final long[] DY = new long[DIRECTIONS];
+
+    static {
+        for (int d = 0; d < DIRECTIONS; d++) {
+            // Rounded to the lattice for the searches only; LngLatAPI.nextPosition keeps the exact offsets
+            double angle = Constants.VALID_ANGLES.get(d);
+            double angleInRadians = Math.toRadians(angle);
+            ANGLES[d] = angle;
+            DX[d] = LatticePoint.units(Constants.MOVE_DISTANCE * Math.cos(angleInRadians));
+            DY[d] = LatticePoint.units(Constants.MOVE_DISTANCE * Math.sin(angleInRadians));
+            D_LNG[d] = DX[d] * LatticePoint.UNIT;
+            D_LAT[d] = DY[d] * LatticePoint.UNIT;
+        }
+    }
+
+    private MoveTable() {
+    }
+
+    public static double dLng(int direction) {
+        return D_LNG[direction];
+    }
+
+    public static double dLat(int direction) {
+        return D_LAT[direction];
+    }
+
+    // The same offsets in whole lattice units
+    public static long dx(int direction) {
+        return DX[direction];
+    }
+
+    public static long dy(int direction) {
+        return DY[direction];
+    }
+
+    // The direction of a move at this angle, or -1 if the angle is not one of Constants.VALID_ANGLES
+    public static int direction(double angle) {
+        int index = Constants.VALID_ANGLES.indexOf(angle);
+        return index < 0 ? -1 : index % DIRECTIONS;
+    }
+
+    public static double angle(int direction) {
+        return ANGLES[direction];
+    }
+
+    public static int opposite(int direction) {
+        return (direction + DIRECTIONS / 2) % DIRECTIONS;
+    }
+}
@@ -0,0 +1,222 @@
+package inf.ed.cw_ilp.model.pathFinder;
+
+import inf.ed.cw_ilp.model.Regions.Position;
+
+import java.util.Arrays;
+
+/**
+ * NodeStore keeps every search state discovered by A_Star in parallel primitive arrays
+ * (struct-of-arrays) instead of one Node object plus a boxed Position key per state.
+ * States are addressed by an int index and looked up through an open-addressing table keyed by a primitive long.
+ * A store is reset and reused between searches, so once it has grown to the working size a search allocates nothing.
+ *
+ * States are identified by their LatticePoint relative to the origin given to reset(), not by their raw doubles,
+ * so a state reached by two orderings of the same moves is found again, and its coordinates are the lattice point's
+ * whichever route added it.
+ */
+public class NodeStore {
+
+    public static final int NONE = -1;
+
+    private static final int EMPTY_SLOT = -1;
+
+    // Per-state columns, indexed by node index
+    private long[] keys;
+    private long[] x;
+    private long[] y;
+    private double[] lng;
+    private double[] lat;
+    private double[] startCost;
+    private double[] finalCost;
+    private int[] parent;
+    private boolean[] closed;
+    private byte[] direction;
+
+    // Hash table from key to node index, always a power of two and at most half full
+    private int[] table;
+    private int mask;
+    private int size;
+
+    private double originLng;
+    private double originLat;
+
+    public NodeStore(int initialCapacity) {
+        int capacity = Math.max(16, Integer.highestOneBit(Math.max(1, initialCapacity - 1)) << 1);
+        keys = new long[capacity];
+        x = new long[capacity];
+        y = new long[capacity];
+        lng = new double[capacity];
+        lat = new double[capacity];
+        startCost = new double[capacity];
+        finalCost = new double[capacity];
+        parent = new int[capacity];
+        closed = new boolean[capacity];
+        direction = new byte[capacity];
+        table = new int[capacity * 2];
+        mask = table.length - 1;
+        Arrays.fill(table, EMPTY_SLOT);
+    }
+
+    // Forget every state but keep the arrays for the next search, whose lattice is anchored at origin
+    public void reset(Position origin) {
+        if (size > 0) {
+            Arrays.fill(table, EMPTY_SLOT);
+            size = 0;
+        }
+        originLng = origin.lng();
+        originLat = origin.lat();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // How many states the arrays hold before they have to grow again
+    public int capacity() {
+        return keys.length;
+    }
+
+    // Returns the index of the state at (lng, lat), or NONE if it has not been discovered yet
+    public int find(double lng, double lat) {
+        long x = LatticePoint.units(lng - originLng);
+        long y = LatticePoint.units(lat - originLat);
+        long key = key(x, y);
+        int slot = slotFor(key);
+        while (true) {
+            int index = table[slot];
+            if (index == EMPTY_SLOT) {
+                return NONE;
+            }
+            if (keys[index] == key && this.x[index] == x && this.y[index] == y) {
+                return index;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    // Adds a state that is not in the store yet and returns its index
+    public int add(double lng, double lat, double startCost, double finalCost, int parent) {
+        if (size == keys.length) {
+            grow();
+        }
+        int index = size++;
+        long x = LatticePoint.units(lng - originLng);
+        long y = LatticePoint.units(lat - originLat);
+        long key = key(x, y);
+        keys[index] = key;
+        this.x[index] = x;
+        this.y[index] = y;
+        this.lng[index] = originLng + x * LatticePoint.UNIT;
+        this.lat[index] = originLat + y * LatticePoint.UNIT;
+        this.startCost[index] = startCost;
+        this.finalCost[index] = finalCost;
+        this.parent[index] = parent;
+        this.closed[index] = false;
+        this.direction[index] = -1;
+        insertIntoTable(key, index);
+        return index;
+    }
+
+    public double lng(int index) {
+        return lng[index];
+    }
+
+    public double lat(int index) {
+        return lat[index];
+    }
+
+    public Position position(int index) {
+        return new Position(lng[index], lat[index]);
+    }
+
+    public LatticePoint point(int index) {
+        return new LatticePoint(x[index], y[index]);
+    }
+
+    public double startCost(int index) {
+        return startCost[index];
+    }
+
+    public double finalCost(int index) {
+        return finalCost[index];
+    }
+
+    public int parent(int index) {
+        return parent[index];
+    }
+
+    // A closed state has been expanded with its final cost and is never expanded again
+    public boolean isClosed(int index) {
+        return closed[index];
+    }
+
+    public void close(int index) {
+        closed[index] = true;
+    }
+
+    // Marks a closed state open again, for searches that can find a cheaper route to it after expanding it
+    public void reopen(int index) {
+        closed[index] = false;
+    }
+
+    // Marks every state open again, for searches that re-expand the same states in several passes
+    public void reopenAll() {
+        Arrays.fill(closed, 0, size, false);
+    }
+
+    // The move linking a state to its parent, for searches that need it (-1 if not recorded)
+    public int direction(int index) {
+        return direction[index];
+    }
+
+    public void setDirection(int index, int direction) {
+        this.direction[index] = (byte) direction;
+    }
+
+    // Records a cheaper route to a state: new parent, g-cost and f-cost
+    public void update(int index, int parent, double startCost, double finalCost) {
+        this.parent[index] = parent;
+        this.startCost[index] = startCost;
+        this.finalCost[index] = finalCost;
+    }
+
+    // The key mixes both lattice coordinates; find() still compares them on a key match
+    static long key(long x, long y) {
+        long h = x * 0x9E3779B97F4A7C15L;
+        h ^= y + 0x632BE59BD9B4E019L + (h << 6) + (h >>> 2);
+        return h ^ (h >>> 31);
+    }
+
+    private int slotFor(long key) {
+        return (int) (key ^ (key >>> 32)) & mask;
+    }
+
+    private void insertIntoTable(long key, int index) {
+        int slot = slotFor(key);
+        while (table[slot] != EMPTY_SLOT) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = index;
+    }
+
+    private void grow() {
+        int capacity = keys.length * 2;
+        keys = Arrays.copyOf(keys, capacity);
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        lng = Arrays.copyOf(lng, capacity);
+        lat = Arrays.copyOf(lat, capacity);
+        startCost = Arrays.copyOf(startCost, capacity);
+        finalCost = Arrays.copyOf(finalCost, capacity);
+        parent = Arrays.copyOf(parent, capacity);
+        closed = Arrays.copyOf(closed, capacity);
+        direction = Arrays.copyOf(direction, capacity);
+
+        table = new int[capacity * 2];
+        mask = table.length - 1;
+        Arrays.fill(table, EMPTY_SLOT);
+        for (int i = 0; i < size; i++) {
+            insertIntoTable(keys[i], i);
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package inf.ed.cw_ilp.model.pathFinder;
+
+import inf.ed.cw_ilp.model.Regions.Position;
+import inf.ed.cw_ilp.model.Regions.PreparedRegion;
+import inf.ed.cw_ilp.utils.Constants;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * OccupancyGrid rasterises a set of regions onto square cells aligned to the drone move lattice.
+ * Every cell is either fully inside a region, fully outside, or crossed by a region edge.
+ * Only points in crossed cells need the exact polygon test; everything else is a single bit lookup.
+ * The crossed cells are also kept dilated by NEAR_EDGE_CELLS, so a search can tell in one lookup
+ * whether a point is within a move of any region edge.
+ */
+public class OccupancyGrid {
+
+    // Upper bound on cells per grid; very large regions get coarser cells instead of a huge bitset
+    private static final int MAX_CELLS = 1 << 22;
+
+    // Cells are at least one move wide, so every point within a move of an edge is this many cells from a crossed one
+    private static final int NEAR_EDGE_CELLS = 2;
+
+    private final List<PreparedRegion> regions;
+    private final double originLng;
+    private final double originLat;
+    private final double cellSize;
+    private final int columns;
+    private final int rows;
+    private final BitSet inside;
+    private final BitSet boundary;
+    private final BitSet nearEdge;
+
+    // Points of a batch that fall in crossed cells, gathered for one exact test per region
+    private static final ThreadLocal<Batch> PENDING = ThreadLocal.withInitial(Batch::new);
+
+    private OccupancyGrid(List<nameData.NamedRegion> regions, double originLng, double originLat,
+                          double cellSize, int columns, int rows) {
+        this.regions = regions.stream().map(PreparedRegion::of).toList();
+        this.originLng = originLng;
+        this.originLat = originLat;
+        this.cellSize = cellSize;
+        this.columns = columns;
+        this.rows = rows;
+        this.inside = new BitSet(columns * rows);
+        this.boundary = new BitSet(columns * rows);
+        this.nearEdge = new BitSet(columns * rows);
+    }
+
+    /**
+     * Compiles the regions into a grid whose cell corners sit on the move lattice around the anchor.
+     * Regions without vertices contain no points and are left out.
+     */
+    public static OccupancyGrid compile(List<nameData.NamedRegion> regions, Position anchor) {
+        List<nameData.NamedRegion> usable = new ArrayList<>();
+        double minLng = Double.POSITIVE_INFINITY, minLat = Double.POSITIVE_INFINITY;
+        double maxLng = Double.NEGATIVE_INFINITY, maxLat = Double.NEGATIVE_INFINITY;
+        for (nameData.NamedRegion region : regions) {
+            if (region == null || region.getCoordinates() == null || region.getCoordinates().length == 0) {
+                continue;
+            }
+            usable.add(region);
+            for (Position vertex : region.getCoordinates()) {
+                minLng = Math.min(minLng, vertex.lng());
+                minLat = Math.min(minLat, vertex.lat());
+                maxLng = Math.max(maxLng, vertex.lng());
+                maxLat = Math.max(maxLat, vertex.lat());
+            }
+        }
+        if (usable.isEmpty()) {
+            return new OccupancyGrid(usable, anchor.lng(), anchor.lat(), Constants.MOVE_DISTANCE, 0, 0);
+        }
+
+        // Pick a whole number of moves per cell so the grid stays under MAX_CELLS
+        double cellSize = Constants.MOVE_DISTANCE;
+        while (((maxLng - minLng) / cellSize + 3) * ((maxLat - minLat) / cellSize + 3) > MAX_CELLS) {
+            cellSize += Constants.MOVE_DISTANCE;
+        }
+
+        // Snap the origin to the lattice and keep a margin round the regions as wide as the near-edge band
+        double originLng = anchor.lng() + (Math.floor((minLng - anchor.lng()) / cellSize) - NEAR_EDGE_CELLS - 1) * cellSize;
+        double originLat = anchor.lat() + (Math.floor((minLat - anchor.lat()) / cellSize) - NEAR_EDGE_CELLS - 1) * cellSize;
+        int columns = (int) Math.ceil((maxLng - originLng) / cellSize) + NEAR_EDGE_CELLS + 2;
+        int rows = (int) Math.ceil((maxLat - originLat) / cellSize) + NEAR_EDGE_CELLS + 2;
+
+        OccupancyGrid grid = new OccupancyGrid(usable, originLng, originLat, cellSize, columns, rows);
+        for (nameData.NamedRegion region : usable) {
+            grid.markBoundary(region.getCoordinates());
+        }
+        for (nameData.NamedRegion region : usable) {
+            grid.fillInterior(region.getCoordinates());
+        }
+        grid.markNearEdge();
+        return grid;
+    }
+
+    public boolean contains(double lng, double lat) {
+        int column = (int) Math.floor((lng - originLng) / cellSize);
+        int row = (int) Math.floor((lat - originLat) / cellSize);
+        if (column < 0 || row < 0 || column >= columns || row >= rows) {
+            return false;
+        }
+        int cell = row * columns + column;
+        if (!boundary.get(cell)) {
+            return inside.get(cell);
+        }
+
+        // An edge crosses this cell, fall back to the exact polygon test
+        for (PreparedRegion region : regions) {
+            if (region.contains(lng, lat)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Batch form of contains(): sets inside[i] for every one of the first count points in a region and leaves the
+     * other entries alone. Points in crossed cells are tested together, so the polygon test can use SIMD lanes.
+     */
+    public void markContained(double[] lng, double[] lat, int count, boolean[] inside) {
+        Batch pending = PENDING.get().ensureCapacity(count);
+        int crossed = 0;
+        for (int i = 0; i < count; i++) {
+            int column = (int) Math.floor((lng[i] - originLng) / cellSize);
+            int row = (int) Math.floor((lat[i] - originLat) / cellSize);
+            if (column < 0 || row < 0 || column >= columns || row >= rows) {
+                continue;
+            }
+            int cell = row * columns + column;
+            if (!boundary.get(cell)) {
+                inside[i] |= this.inside.get(cell);
+            } else {
+                pending.index[crossed] = i;
+                pending.lng[crossed] = lng[i];
+                pending.lat[crossed] = lat[i];
+                pending.inside[crossed] = false;
+                crossed++;
+            }
+        }
+        if (crossed == 0) {
+            return;
+        }
+
+        for (PreparedRegion region : regions) {
+            region.markContained(pending.lng, pending.lat, crossed, pending.inside);
+        }
+        for (int i = 0; i < crossed; i++) {
+            inside[pending.index[i]] |= pending.inside[i];
+        }
+    }
+
+    // True if the point may be within a move of a region edge; false guarantees every move from it stays on one side
+    public boolean isNearEdge(double lng, double lat) {
+        int column = (int) Math.floor((lng - originLng) / cellSize);
+        int row = (int) Math.floor((lat - originLat) / cellSize);
+        if (column < 0 || row < 0 || column >= columns || row >= rows) {
+            return false;
+        }
+        return nearEdge.get(row * columns + column);
+    }
+
+    // Marks every cell touched by an edge, with a small tolerance so rounding never misses one
+    private void markBoundary(Position[] vertices) {
+        double epsilon = cellSize * 1e-6;
+        for (int i = 0; i < vertices.length; i++) {
+            Position a = vertices[i];
+            Position b = vertices[(i + 1) % vertices.length];
+            int firstColumn = clampColumn((Math.min(a.lng(), b.lng()) - epsilon - originLng) / cellSize);
+            int lastColumn = clampColumn((Math.max(a.lng(), b.lng()) + epsilon - originLng) / cellSize);
+            int firstRow = clampRow((Math.min(a.lat(), b.lat()) - epsilon - originLat) / cellSize);
+            int lastRow = clampRow((Math.max(a.lat(), b.lat()) + epsilon - originLat) / cellSize);
+
+            for (int row = firstRow; row <= lastRow; row++) {
+                double cellMinLat = originLat + row * cellSize - epsilon;
+                double cellMaxLat = cellMinLat + cellSize + 2 * epsilon;
+                for (int column = firstColumn; column <= lastColumn; column++) {
+                    double cellMinLng = originLng + column * cellSize - epsilon;
+                    double cellMaxLng = cellMinLng + cellSize + 2 * epsilon;
+                    if (segmentTouchesBox(a.lng(), a.lat(), b.lng(), b.lat(), cellMinLng, cellMinLat, cellMaxLng, cellMaxLat)) {
+                        boundary.set(row * columns + column);
+                    }
+                }
+            }
+        }
+    }
+
+    // Scanline fill: a cell no edge touches is inside if its centre is, using the same ray rule as LngLatAPI
+    private void fillInterior(Position[] vertices) {
+        double[] crossings = new double[vertices.length];
+        for (int row = 0; row < rows; row++) {
+            double centreLat = originLat + (row + 0.5) * cellSize;
+            int count = 0;
+            for (int i = 0; i < vertices.length; i++) {
+                Position a = vertices[i];
+                Position b = vertices[(i + 1) % vertices.length];
+                if (centreLat <= Math.max(a.lat(), b.lat()) && centreLat > Math.min(a.lat(), b.lat())) {
+                    crossings[count++] = a.lng() + ((centreLat - a.lat()) / (b.lat() - a.lat())) * (b.lng() - a.lng());
+                }
+            }
+            if (count == 0) {
+                continue;
+            }
+            Arrays.sort(crossings, 0, count);
+
+            // Walk the row left to right, counting crossings that are still to the right of the centre
+            int passed = 0;
+            for (int column = 0; column < columns; column++) {
+                double centreLng = originLng + (column + 0.5) * cellSize;
+                while (passed < count && crossings[passed] <= centreLng) {
+                    passed++;
+                }
+                int cell = row * columns + column;
+                if ((count - passed) % 2 == 1 && !boundary.get(cell)) {
+                    inside.set(cell);
+                }
+            }
+        }
+    }
+
+    private void markNearEdge() {
+        for (int cell = boundary.nextSetBit(0); cell >= 0; cell = boundary.nextSetBit(cell + 1)) {
+            int row = cell / columns;
+            int column = cell % columns;
+            for (int r = Math.max(0, row - NEAR_EDGE_CELLS); r <= Math.min(rows - 1, row + NEAR_EDGE_CELLS); r++) {
+                int from = r * columns + Math.max(0, column - NEAR_EDGE_CELLS);
+                int to = r * columns + Math.min(columns - 1, column + NEAR_EDGE_CELLS);
+                nearEdge.set(from, to + 1);
+            }
+        }
+    }
+
+    private int clampColumn(double value) {
+        return Math.max(0, Math.min(columns - 1, (int) Math.floor(value)));
+    }
+
+    private int clampRow(double value) {
+        return Math.max(0, Math.min(rows - 1, (int) Math.floor(value)));
+    }
+
+    private static final class Batch {
+        int[] index = new int[MoveTable.DIRECTIONS];
+        double[] lng = new double[MoveTable.DIRECTIONS];
+        double[] lat = new double[MoveTable.DIRECTIONS];
+        boolean[] inside = new boolean[MoveTable.DIRECTIONS];
+
+        Batch ensureCapacity(int count) {
+            if (index.length < count) {
+                index = new int[count];
+                lng = new double[count];
+                lat = new double[count];
+                inside = new boolean[count];
+            }
+            return this;
+        }
+    }
+
+    // Liang-Barsky clip of segment ab against an axis-aligned box
+    static boolean segmentTouchesBox(double aLng, double aLat, double bLng, double bLat,
+                                     double minLng, double minLat, double maxLng, double maxLat) {
+        double dLng = bLng - aLng;
+        double dLat = bLat - aLat;
+        double[] p = {-dLng, dLng, -dLat, dLat};
+        double[] q = {aLng - minLng, maxLng - aLng, aLat - minLat, maxLat - aLat};
+        double enter = 0, exit = 1;
+        for (int i = 0; i < 4; i++) {
+            if (p[i] == 0) {
+                if (q[i] < 0) {
+                    return false;
+                }
+            } else {
+                double t = q[i] / p[i];
+                if (p[i] < 0) {
+                    enter = Math.max(enter, t);
+                } else {
+                    exit = Math.min(exit, t);
+                }
+            }
+        }
+        return enter <= exit;
+    }
+}
@@ -0,0 +1,462 @@
+package inf.ed.cw_ilp.model.pathFinder;
+
+import inf.ed.cw_ilp.model.Regions.Position;
+import inf.ed.cw_ilp.utils.Constants;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * ParallelAStar is Hash Distributed A* (HDA*): one A* search split across several worker threads.
+ * Every state belongs to the worker its coordinates hash to, and only that worker stores and expands it,
+ * so no state is ever shared. A worker expands the best state in its own open set; successors it owns go
+ * straight into that open set, the others are posted to their owner's lock-free inbox.
+ *
+ * Workers expand states out of global f-order, so a state can be reached more cheaply after it has been
+ * expanded; it is then re-opened. The first goal found is therefore not necessarily the best one: the
+ * search only ends once no worker holds a state that could still beat the best goal and no message is
+ * in flight. The path has the same cost as the one A_Star finds. Workers are paced so they all stay close to
+ * the lowest f-cost, which keeps the total number of expansions close to that of A_Star.
+ *
+ * Workers come from one bounded pool shared by every parallel search. A search only starts once all its workers
+ * can have a thread, since a worker waits on the others. Workers with nothing to do block until a message or
+ * a change in the frontier wakes them, and the last one to go idle ends the search.
+ */
+public class ParallelAStar implements PathFinder {
+
+    public static final int DEFAULT_WORKERS = Math.min(8, Runtime.getRuntime().availableProcessors());
+
+    // Workers report expansions to the shared budget in batches of this many
+    private static final int BUDGET_BATCH = 64;
+
+    // A worker holds back while its best f-cost is more than this above the lowest one any worker has or is
+    // about to receive, so a worker that gets ahead doesn't spend its time on states plain A* would never expand
+    private static final double EXPANSION_WINDOW = Constants.MOVE_DISTANCE / 10;
+
+    // Worker threads shared by all parallel searches; enough for two searches with the default worker count
+    static final int WORKER_THREADS = Math.max(8, 2 * DEFAULT_WORKERS);
+
+    // How often a search waiting for worker threads checks whether its budget has run out
+    private static final long ADMISSION_CHECK_MILLIS = 20;
+
+    private static final ExecutorService WORKERS = Executors.newFixedThreadPool(WORKER_THREADS, runnable -> {
+        Thread thread = new Thread(runnable, "parallel-astar-worker");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // One permit per free worker thread, handed out fairly so a search with many workers isn't passed over
+    private static final Semaphore FREE_THREADS = new Semaphore(WORKER_THREADS, true);
+
+    private final Position start;
+    private final Position end;
+    private final Airspace airspace;
+    private final SearchBudget budget;
+    private final int workerCount;
+    private final Heuristic heuristic;
+
+    // States taken off the open sets by the last search, summed over the workers
+    private int expandedNodes;
+
+    // Whether the last path came from a corridor search rather than the whole lattice
+    private boolean withinCorridor;
+
+    public ParallelAStar(Position start, Position end, Airspace airspace) {
+        this(start, end, airspace, SearchBudget.standard(), DEFAULT_WORKERS);
+    }
+
+    public ParallelAStar(Position start, Position end, Airspace airspace, SearchBudget budget) {
+        this(start, end, airspace, budget, DEFAULT_WORKERS);
+    }
+
+    public ParallelAStar(Position start, Position end, Airspace airspace, SearchBudget budget, int workerCount) {
+        this(start, end, airspace, budget, workerCount, Heuristic.lattice(end));
+    }
+
+    public ParallelAStar(Position start, Position end, Airspace airspace, SearchBudget budget, int workerCount, Heuristic heuristic) {
+        if (workerCount < 1 || workerCount > WORKER_THREADS) {
+            throw new IllegalArgumentException("A parallel search needs between 1 and " + WORKER_THREADS + " workers");
+        }
+        this.start = start;
+        this.end = end;
+        this.airspace = airspace;
+        this.budget = budget;
+        this.workerCount = workerCount;
+        this.heuristic = heuristic;
+    }
+
+    public int getExpandedNodes() {
+        return expandedNodes;
+    }
+
+    @Override
+    public List<Position> calculatePath() {
+        // Long deliveries get the same visibility-graph corridor as A_Star
+        Corridor.Outcome outcome = Corridor.searchFirst(start, end, airspace, corridor -> new Search(corridor).run());
+        withinCorridor = outcome.withinCorridor();
+        return outcome.path();
+    }
+
+    // A path found inside the corridor is only the shortest there, so no bound is claimed for it
+    @Override
+    public double suboptimalityBound() {
+        return withinCorridor ? Double.NaN : 1;
+    }
+
+    private double distanceToEnd(double lng, double lat) {
+        double dLng = lng - end.lng();
+        double dLat = lat - end.lat();
+        return Math.sqrt(dLng * dLng + dLat * dLat);
+    }
+
+    // A successor posted to the worker that owns it; parent is a global node id
+    private record Message(double lng, double lat, double startCost, double finalCost, int parent) {
+    }
+
+    /**
+     * The shared state of one search. Node ids are global: local index * workerCount + worker,
+     * so a parent can live on any worker.
+     */
+    private final class Search {
+
+        private final Corridor corridor;
+        private final Worker[] workers = new Worker[workerCount];
+
+        // Messages ever posted, and posted but not yet handled; together they detect termination
+        private final AtomicLong sent = new AtomicLong();
+        private final AtomicLong inFlight = new AtomicLong();
+
+        // Best goal so far; only written under the lock on this search
+        private volatile double bestFinalCost = Double.POSITIVE_INFINITY;
+        private volatile int bestNode = NodeStore.NONE;
+
+        private volatile boolean done;
+        private volatile RuntimeException failure;
+        private final CountDownLatch finished = new CountDownLatch(1);
+
+        Search(Corridor corridor) {
+            this.corridor = corridor;
+            for (int i = 0; i < workerCount; i++) {
+                workers[i] = new Worker(i);
+            }
+        }
+
+        List<Position> run() {
+            workers[owner(start.lng(), start.lat())].relax(start.lng(), start.lat(), 0,
+                    A_Star.TIE_BREAK * heuristic.estimate(start.lng(), start.lat()), NodeStore.NONE);
+
+            acquireThreads();
+            List<Future<?>> futures = new ArrayList<>(workerCount);
+            try {
+                for (Worker worker : workers) {
+                    futures.add(WORKERS.submit(worker));
+                }
+                awaitFinish();
+            } finally {
+                finish();
+                awaitAll(futures);
+                FREE_THREADS.release(workerCount);
+            }
+            if (failure != null) {
+                throw failure;
+            }
+
+            expandedNodes = 0;
+            for (Worker worker : workers) {
+                expandedNodes += worker.expanded;
+            }
+            return bestNode == NodeStore.NONE ? new ArrayList<>() : reconstructPath(bestNode);
+        }
+
+        /**
+         * True once every worker is idle and nothing is in flight. A worker only gets new work through a message,
+         * so if no message was posted while the flags were read, none of the workers seen idle can have woken up since.
+         */
+        private boolean terminated() {
+            long sentBefore = sent.get();
+            if (inFlight.get() != 0) {
+                return false;
+            }
+            for (Worker worker : workers) {
+                if (!worker.idle) {
+                    return false;
+                }
+            }
+            return sent.get() == sentBefore;
+        }
+
+        // Waits for a thread for every worker, giving up if the budget runs out or is cancelled meanwhile
+        private void acquireThreads() {
+            try {
+                while (!FREE_THREADS.tryAcquire(workerCount, ADMISSION_CHECK_MILLIS, TimeUnit.MILLISECONDS)) {
+                    budget.check();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SearchAbortedException(SearchAbortedException.Reason.CANCELLED, "Path search was interrupted");
+            }
+        }
+
+        private void awaitFinish() {
+            try {
+                finished.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(new SearchAbortedException(SearchAbortedException.Reason.CANCELLED, "Path search was interrupted"));
+            }
+        }
+
+        // Stops every worker, waking those that are blocked so they see it
+        private void finish() {
+            done = true;
+            finished.countDown();
+            wakeAll();
+        }
+
+        private void wakeAll() {
+            for (Worker worker : workers) {
+                worker.wake();
+            }
+        }
+
+        private void awaitAll(List<Future<?>> futures) {
+            boolean interrupted = false;
+            for (Future<?> future : futures) {
+                while (true) {
+                    try {
+                        future.get();
+                        break;
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    } catch (ExecutionException e) {
+                        fail(new IllegalStateException("Parallel path search worker failed", e.getCause()));
+                        break;
+                    }
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void fail(RuntimeException e) {
+            if (failure == null) {
+                failure = e;
+            }
+            finish();
+        }
+
+        private synchronized void recordGoal(double finalCost, int node) {
+            if (finalCost < bestFinalCost) {
+                bestNode = node;
+                bestFinalCost = finalCost;
+            }
+        }
+
+        // Read without any locking, so it is only a guide for pacing the workers
+        private double lowestFrontier() {
+            double lowest = Double.POSITIVE_INFINITY;
+            for (Worker worker : workers) {
+                lowest = Math.min(lowest, worker.lowestCost());
+            }
+            return lowest;
+        }
+
+        // Owners go by lattice point, so every route to a state sends it to the same worker
+        private int owner(double lng, double lat) {
+            long key = NodeStore.key(LatticePoint.units(lng - start.lng()), LatticePoint.units(lat - start.lat()));
+            return (int) ((key >>> 1) % workerCount);
+        }
+
+        private List<Position> reconstructPath(int node) {
+            List<Position> path = new ArrayList<>();
+            while (node != NodeStore.NONE) {
+                NodeStore nodes = workers[node % workerCount].nodes;
+                int local = node / workerCount;
+                path.add(nodes.position(local));
+                node = nodes.parent(local);
+            }
+            Collections.reverse(path);
+            return path;
+        }
+
+        private final class Worker implements Runnable {
+
+            private final int id;
+            private final NodeStore nodes = new NodeStore(1 << 12);
+            private final IndexedHeap openSet = new IndexedHeap(1 << 12);
+            private final Queue<Message> inbox = new ConcurrentLinkedQueue<>();
+
+            // Cleared before the worker takes on any work, and only set when it has none left
+            private volatile boolean idle;
+            // f-cost of the best state in the open set, infinite while idle
+            private volatile double frontier = Double.POSITIVE_INFINITY;
+            // The frontier as the other workers were last woken to see it
+            private double announced = Double.POSITIVE_INFINITY;
+            // Set while the worker runs, so it can be woken from a blocking wait
+            private volatile Thread thread;
+            // Lowest f-cost among the messages posted since the inbox was last drained, as raw double bits
+            private final AtomicLong pending = new AtomicLong(Double.doubleToLongBits(Double.POSITIVE_INFINITY));
+            private int expanded;
+
+            Worker(int id) {
+                this.id = id;
+                nodes.reset(start);
+            }
+
+            @Override
+            public void run() {
+                thread = Thread.currentThread();
+                try {
+                    int unreported = 0;
+                    while (!done) {
+                        Message message;
+                        pending.set(Double.doubleToLongBits(Double.POSITIVE_INFINITY));
+                        while ((message = inbox.poll()) != null) {
+                            idle = false;
+                            relax(message.lng(), message.lat(), message.startCost(), message.finalCost(), message.parent());
+                            inFlight.decrementAndGet();
+                        }
+
+                        if (openSet.isEmpty() || openSet.peekKey() >= bestFinalCost) {
+                            frontier = Double.POSITIVE_INFINITY;
+                            idle = true;
+                            if (terminated()) {
+                                finish();
+                            } else {
+                                await();
+                            }
+                            continue;
+                        }
+
+                        idle = false;
+                        frontier = openSet.peekKey();
+                        if (frontier > lowestFrontier() + EXPANSION_WINDOW) {
+                            // Held back until the workers behind catch up; whichever is lowest keeps expanding
+                            await();
+                            continue;
+                        }
+
+                        expand(openSet.pop());
+                        expanded++;
+                        if (++unreported == BUDGET_BATCH) {
+                            budget.expand(unreported);
+                            unreported = 0;
+                            announce();
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    fail(e);
+                } finally {
+                    thread = null;
+                }
+            }
+
+            // Blocks until a message, a frontier change or the end of the search wakes it; a wake-up that comes
+            // first is not lost, as the next park returns at once
+            private void await() {
+                announce();
+                LockSupport.park(this);
+            }
+
+            // Wakes the workers held back behind this one if its frontier has moved since they last looked
+            private void announce() {
+                if (frontier != announced) {
+                    announced = frontier;
+                    wakeAll();
+                }
+            }
+
+            void wake() {
+                Thread current = thread;
+                if (current != null) {
+                    LockSupport.unpark(current);
+                }
+            }
+
+            private void expand(int currentNode) {
+                nodes.close(currentNode);
+                double currentLng = nodes.lng(currentNode);
+                double currentLat = nodes.lat(currentNode);
+                int globalNode = currentNode * workerCount + id;
+
+                if (distanceToEnd(currentLng, currentLat) <= Constants.CLOSE_DISTANCE) {
+                    recordGoal(nodes.finalCost(currentNode), globalNode);
+                    return;
+                }
+
+                // Once this route has entered the central area it may not leave it again
+                boolean inCentralArea = airspace.isInCentralArea(currentLng, currentLat);
+
+                double newG = nodes.startCost(currentNode) + Constants.MOVE_DISTANCE;
+                for (int direction = 0; direction < MoveTable.DIRECTIONS; direction++) {
+                    double neighborLng = currentLng + MoveTable.dLng(direction);
+                    double neighborLat = currentLat + MoveTable.dLat(direction);
+
+                    if (corridor != null && !corridor.contains(neighborLng, neighborLat)) continue;
+                    if (airspace.isNoFlyMove(currentLng, currentLat, neighborLng, neighborLat)) continue;
+                    if (inCentralArea && !airspace.isInCentralArea(neighborLng, neighborLat)) continue;
+
+                    double estimate = heuristic.estimate(neighborLng, neighborLat);
+                    if (!budget.allowsEstimate(newG, estimate)) continue;
+
+                    double newF = newG + A_Star.TIE_BREAK * estimate;
+                    if (newF >= bestFinalCost) continue;
+
+                    int neighborOwner = owner(neighborLng, neighborLat);
+                    if (neighborOwner == id) {
+                        relax(neighborLng, neighborLat, newG, newF, globalNode);
+                    } else {
+                        // Counted before it is posted, so it is never in the inbox without being in flight;
+                        // the in-flight count goes first so a termination check can't miss it
+                        inFlight.incrementAndGet();
+                        sent.incrementAndGet();
+                        workers[neighborOwner].post(new Message(neighborLng, neighborLat, newG, newF, globalNode));
+                    }
+                }
+            }
+
+            void post(Message message) {
+                long bits = Double.doubleToLongBits(message.finalCost());
+                long current;
+                while (message.finalCost() < Double.longBitsToDouble(current = pending.get())
+                        && !pending.compareAndSet(current, bits)) {
+                    Thread.onSpinWait();
+                }
+                inbox.add(message);
+                wake();
+            }
+
+            // Best f-cost this worker has or is about to receive
+            double lowestCost() {
+                return Math.min(frontier, Double.longBitsToDouble(pending.get()));
+            }
+
+            // Adds a state this worker owns, or records a cheaper route to it and opens it again
+            void relax(double lng, double lat, double startCost, double finalCost, int parent) {
+                int node = nodes.find(lng, lat);
+                if (node == NodeStore.NONE) {
+                    node = nodes.add(lng, lat, startCost, finalCost, parent);
+                } else if (startCost < nodes.startCost(node)) {
+                    nodes.update(node, parent, startCost, finalCost);
+                    nodes.reopen(node);
+                } else {
+                    return;
+                }
+                openSet.pushOrDecrease(node, finalCost);
+            }
+        }
+    }
+}
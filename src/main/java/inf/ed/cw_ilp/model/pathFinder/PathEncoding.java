@@ -0,0 +1,120 @@
+package inf.ed.cw_ilp.model.pathFinder;
+
+import inf.ed.cw_ilp.model.Regions.Position;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * PathEncoding writes a drone path more compactly than one Position per move. A delivery path is mostly long
+ * straight runs, so both forms are a small fraction of the size:
+ * SEGMENTS keeps only the first and last positions and those where the direction changes, which draws the
+ * same line; MOVES gives the start and run-length encoded MoveTable directions, from which every position can be
+ * replayed. A hover (two equal positions in a row) is a run of HOVER in MOVES and a repeated vertex in SEGMENTS.
+ */
+public final class PathEncoding {
+
+    public enum Format {
+        POSITIONS, SEGMENTS, MOVES
+    }
+
+    // Direction index of a hover in a MOVES run
+    public static final int HOVER = -1;
+
+    // Rounding slack when matching a step to a move, in lattice units; far below the gap between two moves
+    private static final long TOLERANCE = 4;
+
+    // count moves in direction, one after another
+    public record Run(int direction, int count) {}
+
+    public record MoveSequence(Position start, List<Run> runs) {}
+
+    private PathEncoding() {
+    }
+
+    // The path in the given form; a List of Positions for POSITIONS and SEGMENTS, a MoveSequence for MOVES
+    public static Object encode(List<Position> path, Format format) {
+        return switch (format) {
+            case POSITIONS -> path;
+            case SEGMENTS -> segments(path);
+            case MOVES -> moves(path);
+        };
+    }
+
+    // Positions where the path turns or hovers, plus both ends
+    public static List<Position> segments(List<Position> path) {
+        List<Position> vertices = new ArrayList<>();
+        if (path.isEmpty()) {
+            return vertices;
+        }
+        vertices.add(path.get(0));
+        int previous = Integer.MIN_VALUE;
+        for (int i = 1; i < path.size(); i++) {
+            int direction = direction(path.get(i - 1), path.get(i), i);
+            if (direction == previous && direction != HOVER) {
+                // Same way as the last move: slide the segment's end along instead of adding a vertex
+                vertices.set(vertices.size() - 1, path.get(i));
+            } else {
+                vertices.add(path.get(i));
+            }
+            previous = direction;
+        }
+        return vertices;
+    }
+
+    public static MoveSequence moves(List<Position> path) {
+        List<Run> runs = new ArrayList<>();
+        if (path.isEmpty()) {
+            return new MoveSequence(null, runs);
+        }
+        int direction = HOVER;
+        int count = 0;
+        for (int i = 1; i < path.size(); i++) {
+            int next = direction(path.get(i - 1), path.get(i), i);
+            if (count > 0 && next != direction) {
+                runs.add(new Run(direction, count));
+                count = 0;
+            }
+            direction = next;
+            count++;
+        }
+        if (count > 0) {
+            runs.add(new Run(direction, count));
+        }
+        return new MoveSequence(path.get(0), runs);
+    }
+
+    // Replays the moves from the start; each position is on the start's lattice
+    public static List<Position> decode(MoveSequence sequence) {
+        List<Position> path = new ArrayList<>();
+        if (sequence.start() == null) {
+            return path;
+        }
+        LatticePoint point = LatticePoint.ORIGIN;
+        path.add(sequence.start());
+        for (Run run : sequence.runs()) {
+            for (int i = 0; i < run.count(); i++) {
+                if (run.direction() != HOVER) {
+                    point = point.step(run.direction());
+                }
+                path.add(point.toPosition(sequence.start()));
+            }
+        }
+        return path;
+    }
+
+    // The MoveTable direction of the step from one position to the next, or HOVER
+    private static int direction(Position from, Position to, int index) {
+        long x = LatticePoint.units(to.lng() - from.lng());
+        long y = LatticePoint.units(to.lat() - from.lat());
+        if (Math.abs(x) <= TOLERANCE && Math.abs(y) <= TOLERANCE) {
+            return HOVER;
+        }
+        for (int direction = 0; direction < MoveTable.DIRECTIONS; direction++) {
+            if (Math.abs(x - MoveTable.dx(direction)) <= TOLERANCE && Math.abs(y - MoveTable.dy(direction)) <= TOLERANCE) {
+                return direction;
+            }
+        }
+        throw new IllegalArgumentException("Step " + index + " of the path is not a single drone move");
+    }
+}
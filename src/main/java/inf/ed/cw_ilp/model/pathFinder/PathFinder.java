@@ -0,0 +1,19 @@
+package inf.ed.cw_ilp.model.pathFinder;
+
+import inf.ed.cw_ilp.model.Regions.Position;
+
+import java.util.List;
+
+/**
+ * A search that finds a drone path between two positions.
+ * The path starts at the start position and ends within CLOSE_DISTANCE of the end; it is empty if there is none.
+ */
+public interface PathFinder {
+
+    List<Position> calculatePath();
+
+    // How many times longer than the shortest path the last result can be; 1 for the exact searches, NaN if unknown
+    default double suboptimalityBound() {
+        return 1;
+    }
+}
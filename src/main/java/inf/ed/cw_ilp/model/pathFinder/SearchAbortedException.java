@@ -0,0 +1,27 @@
+package inf.ed.cw_ilp.model.pathFinder;
+
+/**
+ * Thrown when a path search stops because its SearchBudget ran out or it was cancelled.
+ * Unlike an empty path, it does not mean there is no path, only that the search did not finish.
+ */
+public class SearchAbortedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public enum Reason {
+        EXPANSION_LIMIT,
+        DEADLINE,
+        CANCELLED
+    }
+
+    private final Reason reason;
+
+    public SearchAbortedException(Reason reason, String message) {
+        super(message);
+        this.reason = reason;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+}
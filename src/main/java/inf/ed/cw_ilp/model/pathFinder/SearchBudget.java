@@ -0,0 +1,109 @@
+package inf.ed.cw_ilp.model.pathFinder;
+
+import inf.ed.cw_ilp.utils.Constants;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SearchBudget caps the work a single path search may do: no path longer than MAX_DRONE_MOVES,
+ * at most maxExpansions expanded states, and an optional wall-clock deadline. It can also be cancelled
+ * from another thread, for example when the HTTP client goes away. Going over any limit aborts the search
+ * with a SearchAbortedException instead of letting it explore until the open set is empty.
+ * One budget is shared by every search that serves the same request, so the limits are cumulative,
+ * and it can be drawn on from several threads at once. Independent searches for one request take a fork each.
+ */
+public class SearchBudget {
+
+    public static final long DEFAULT_MAX_EXPANSIONS = 1_000_000;
+
+    // The clock is only read every this many expansions
+    private static final int CHECK_INTERVAL = 1024;
+
+    // Longest allowed path as a cost, with room for the rounding in summed move costs
+    private static final double MAX_COST = Constants.MAX_DRONE_MOVES * Constants.MOVE_DISTANCE * (1 + 1e-9);
+
+    private final long maxExpansions;
+    private final long deadline;
+    private final SearchBudget parent;
+    private volatile boolean cancelled;
+    private final AtomicLong expansions = new AtomicLong();
+
+    // A null timeout means no deadline
+    public SearchBudget(long maxExpansions, Duration timeout) {
+        this(maxExpansions, timeout == null ? Long.MAX_VALUE : System.nanoTime() + timeout.toNanos(), null);
+    }
+
+    private SearchBudget(long maxExpansions, long deadline, SearchBudget parent) {
+        this.maxExpansions = maxExpansions;
+        this.deadline = deadline;
+        this.parent = parent;
+    }
+
+    public static SearchBudget standard() {
+        return new SearchBudget(DEFAULT_MAX_EXPANSIONS, null);
+    }
+
+    // A budget with its own expansion count but this one's deadline, cancelled whenever this one is
+    public SearchBudget fork() {
+        return new SearchBudget(maxExpansions, deadline, this);
+    }
+
+    // A budget with limits of its own, cancelled whenever this one is; a null timeout means no deadline
+    public SearchBudget child(long maxExpansions, Duration timeout) {
+        return new SearchBudget(maxExpansions, timeout == null ? Long.MAX_VALUE : System.nanoTime() + timeout.toNanos(), this);
+    }
+
+    // False once a route has used up MAX_DRONE_MOVES; searches don't extend it any further
+    public boolean allowsCost(double startCost) {
+        return startCost <= MAX_COST;
+    }
+
+    // False if a route can't reach the goal within MAX_DRONE_MOVES even by flying straight there
+    public boolean allowsRoute(double startCost, double distanceToEnd) {
+        return startCost + Math.max(0, distanceToEnd - Constants.CLOSE_DISTANCE) <= MAX_COST;
+    }
+
+    // Same as allowsRoute, for searches whose heuristic already knows the cost is at least estimate
+    public boolean allowsEstimate(double startCost, double estimate) {
+        return startCost + estimate <= MAX_COST;
+    }
+
+    // Counts one expanded state, aborting the search if a limit has been reached
+    public void expand() {
+        expand(1);
+    }
+
+    // Counts several expanded states at once, for searches that report in batches
+    public void expand(int count) {
+        long total = expansions.addAndGet(count);
+        if (total > maxExpansions) {
+            throw new SearchAbortedException(SearchAbortedException.Reason.EXPANSION_LIMIT,
+                    "Path search gave up after expanding " + maxExpansions + " states");
+        }
+        if (isCancelled() || total / CHECK_INTERVAL != (total - count) / CHECK_INTERVAL) {
+            check();
+        }
+    }
+
+    public void check() {
+        if (isCancelled()) {
+            throw new SearchAbortedException(SearchAbortedException.Reason.CANCELLED, "Path search was cancelled");
+        }
+        if (System.nanoTime() > deadline) {
+            throw new SearchAbortedException(SearchAbortedException.Reason.DEADLINE, "Path search ran out of time");
+        }
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    private boolean isCancelled() {
+        return cancelled || (parent != null && parent.isCancelled());
+    }
+
+    public long getExpansions() {
+        return expansions.get();
+    }
+}
@@ -0,0 +1,85 @@
+package inf.ed.cw_ilp.model.pathFinder;
+
+import inf.ed.cw_ilp.model.Regions.Position;
+
+import java.time.Duration;
+
+/**
+ * The path searches that can serve a delivery, selectable per request or through drone.path.mode.
+ * Every search stops when the SearchBudget runs out; the time budget is only used by the anytime search,
+ * to decide when to stop tightening its path.
+ */
+public enum SearchMode {
+
+    // Unidirectional A* from the restaurant (the default)
+    ASTAR {
+        @Override
+        public PathFinder create(Position start, Position end, Airspace airspace, Duration timeBudget, SearchBudget budget) {
+            return new A_Star(start, end, airspace, budget);
+        }
+    },
+
+    // A* guided by landmark distances, which see the no-fly zones between a point and the goal
+    LANDMARKS {
+        @Override
+        public PathFinder create(Position start, Position end, Airspace airspace, Duration timeBudget, SearchBudget budget) {
+            return new A_Star(start, end, airspace, budget, new LandmarkHeuristic(end, airspace));
+        }
+
+        @Override
+        public void prepare(Airspace airspace) {
+            LandmarkHeuristic.Landmarks.forAirspace(airspace);
+        }
+    },
+
+    // A* from both ends at once, meeting in the middle
+    BIDIRECTIONAL {
+        @Override
+        public PathFinder create(Position start, Position end, Airspace airspace, Duration timeBudget, SearchBudget budget) {
+            return new BidirectionalAStar(start, end, airspace, budget);
+        }
+    },
+
+    // Jump Point Search: straight runs between forced neighbours near region edges
+    JUMP_POINT {
+        @Override
+        public PathFinder create(Position start, Position end, Airspace airspace, Duration timeBudget, SearchBudget budget) {
+            return new JumpPointSearch(start, end, airspace, budget);
+        }
+    },
+
+    // HPA*: a route over the cluster graph, refined one cluster at a time
+    HIERARCHICAL {
+        @Override
+        public PathFinder create(Position start, Position end, Airspace airspace, Duration timeBudget, SearchBudget budget) {
+            return new HierarchicalSearch(start, end, airspace, budget);
+        }
+
+        @Override
+        public void prepare(Airspace airspace) {
+            ClusterGraph.forAirspace(airspace);
+        }
+    },
+
+    // HDA*: A* split across worker threads, each owning the states that hash to it
+    PARALLEL {
+        @Override
+        public PathFinder create(Position start, Position end, Airspace airspace, Duration timeBudget, SearchBudget budget) {
+            return new ParallelAStar(start, end, airspace, budget);
+        }
+    },
+
+    // ARA*: a quick inflated-heuristic path, tightened until the time budget runs out
+    ANYTIME {
+        @Override
+        public PathFinder create(Position start, Position end, Airspace airspace, Duration timeBudget, SearchBudget budget) {
+            return new AnytimeAStar(start, end, airspace, timeBudget, budget);
+        }
+    };
+
+    public abstract PathFinder create(Position start, Position end, Airspace airspace, Duration timeBudget, SearchBudget budget);
+
+    // Builds whatever the search precomputes per airspace, so the first request doesn't pay for it
+    public void prepare(Airspace airspace) {
+    }
+}
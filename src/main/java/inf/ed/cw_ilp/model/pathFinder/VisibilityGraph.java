@@ -0,0 +1,209 @@
+package inf.ed.cw_ilp.model.pathFinder;
+
+import inf.ed.cw_ilp.model.Regions.Position;
+import inf.ed.cw_ilp.utils.Constants;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * VisibilityGraph connects the convex corners of the no-fly zones that can see each other in a straight line.
+ * The shortest route over it is the any-angle shortest way round the zones, which A_Star uses as a guide
+ * for long deliveries before it runs the lattice search. It is built once per Airspace.
+ */
+public class VisibilityGraph {
+
+    // Corners are pushed this far out of their zone so routes don't graze the edges
+    private static final double CLEARANCE = Constants.MOVE_DISTANCE;
+
+    private final List<Position[]> zones;
+    private final Position[] corners;
+    private final double[][] distance;  // NaN where two corners can't see each other
+
+    private VisibilityGraph(List<Position[]> zones, Position[] corners) {
+        this.zones = zones;
+        this.corners = corners;
+        this.distance = new double[corners.length][corners.length];
+        for (int i = 0; i < corners.length; i++) {
+            distance[i][i] = 0;
+            for (int j = i + 1; j < corners.length; j++) {
+                double d = isVisible(corners[i], corners[j]) ? distance(corners[i], corners[j]) : Double.NaN;
+                distance[i][j] = d;
+                distance[j][i] = d;
+            }
+        }
+    }
+
+    public static VisibilityGraph forAirspace(Airspace airspace) {
+        return airspace.derived(VisibilityGraph.class, VisibilityGraph::build);
+    }
+
+    private static VisibilityGraph build(Airspace airspace) {
+        List<Position[]> zones = new ArrayList<>();
+        for (nameData.NamedRegion zone : airspace.getNoFlyZones()) {
+            if (zone.getCoordinates() != null && zone.getCoordinates().length >= 3) {
+                zones.add(zone.getCoordinates());
+            }
+        }
+
+        List<Position> corners = new ArrayList<>();
+        for (Position[] zone : zones) {
+            for (Position corner : convexCorners(zone)) {
+                if (!airspace.isNoFly(corner.lng(), corner.lat())) {
+                    corners.add(corner);
+                }
+            }
+        }
+        return new VisibilityGraph(zones, corners.toArray(new Position[0]));
+    }
+
+    /**
+     * Shortest waypoint route from start to end that does not cut through a no-fly zone,
+     * including both end points. Returns an empty list if the zones leave no way through.
+     */
+    public List<Position> route(Position start, Position end) {
+        if (isVisible(start, end)) {
+            return List.of(start, end);
+        }
+
+        // Dijkstra over the corners, with start as node n and end as node n + 1
+        int n = corners.length;
+        double[] startTo = new double[n];
+        double[] endTo = new double[n];
+        for (int i = 0; i < n; i++) {
+            startTo[i] = isVisible(start, corners[i]) ? distance(start, corners[i]) : Double.NaN;
+            endTo[i] = isVisible(corners[i], end) ? distance(corners[i], end) : Double.NaN;
+        }
+
+        double[] best = new double[n + 2];
+        int[] previous = new int[n + 2];
+        boolean[] settled = new boolean[n + 2];
+        Arrays.fill(best, Double.POSITIVE_INFINITY);
+        Arrays.fill(previous, -1);
+        best[n] = 0;
+
+        while (true) {
+            int current = -1;
+            for (int i = 0; i < n + 2; i++) {
+                if (!settled[i] && best[i] < Double.POSITIVE_INFINITY && (current == -1 || best[i] < best[current])) {
+                    current = i;
+                }
+            }
+            if (current == -1) {
+                return List.of();
+            }
+            if (current == n + 1) {
+                break;
+            }
+            settled[current] = true;
+
+            for (int next = 0; next < n + 2; next++) {
+                double edge = edgeLength(current, next, startTo, endTo);
+                if (!settled[next] && !Double.isNaN(edge) && best[current] + edge < best[next]) {
+                    best[next] = best[current] + edge;
+                    previous[next] = current;
+                }
+            }
+        }
+
+        List<Position> route = new ArrayList<>();
+        for (int node = n + 1; node != -1; node = previous[node]) {
+            route.add(node == n ? start : node == n + 1 ? end : corners[node]);
+        }
+        Collections.reverse(route);
+        return route;
+    }
+
+    private double edgeLength(int from, int to, double[] startTo, double[] endTo) {
+        int n = corners.length;
+        if (from == to || to == n) {
+            return Double.NaN;
+        }
+        if (from == n) {
+            return to == n + 1 ? Double.NaN : startTo[to];
+        }
+        if (to == n + 1) {
+            return endTo[from];
+        }
+        return distance[from][to];
+    }
+
+    // A segment is visible unless it properly crosses a zone edge or runs through a zone's inside
+    private boolean isVisible(Position a, Position b) {
+        for (Position[] zone : zones) {
+            for (int i = 0; i < zone.length; i++) {
+                if (segmentsCross(a, b, zone[i], zone[(i + 1) % zone.length])) {
+                    return false;
+                }
+            }
+            Position midpoint = new Position((a.lng() + b.lng()) / 2, (a.lat() + b.lat()) / 2);
+            if (containsStrictly(zone, midpoint)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Corners that bulge out of the zone, pushed outwards along the bisector of the two edge normals
+    private static List<Position> convexCorners(Position[] zone) {
+        double area = 0;
+        for (int i = 0; i < zone.length; i++) {
+            Position a = zone[i];
+            Position b = zone[(i + 1) % zone.length];
+            area += a.lng() * b.lat() - b.lng() * a.lat();
+        }
+        double orientation = Math.signum(area);
+
+        List<Position> corners = new ArrayList<>();
+        for (int i = 0; i < zone.length; i++) {
+            Position previous = zone[(i + zone.length - 1) % zone.length];
+            Position corner = zone[i];
+            Position next = zone[(i + 1) % zone.length];
+            double inLng = corner.lng() - previous.lng(), inLat = corner.lat() - previous.lat();
+            double outLng = next.lng() - corner.lng(), outLat = next.lat() - corner.lat();
+            double turn = inLng * outLat - inLat * outLng;
+            if (turn * orientation <= 0) {
+                continue; // reflex or straight corner, never on a shortest route
+            }
+
+            // Outward normals of both edges; for a counter-clockwise zone the outside is on the right
+            double inLength = Math.hypot(inLng, inLat), outLength = Math.hypot(outLng, outLat);
+            double normalLng = orientation * (inLat / inLength + outLat / outLength);
+            double normalLat = -orientation * (inLng / inLength + outLng / outLength);
+            double normalLength = Math.hypot(normalLng, normalLat);
+            if (normalLength == 0) {
+                continue;
+            }
+            corners.add(new Position(corner.lng() + CLEARANCE * normalLng / normalLength,
+                    corner.lat() + CLEARANCE * normalLat / normalLength));
+        }
+        return corners;
+    }
+
+    private static boolean segmentsCross(Position a, Position b, Position c, Position d) {
+        double d1 = cross(c, d, a), d2 = cross(c, d, b);
+        double d3 = cross(a, b, c), d4 = cross(a, b, d);
+        return ((d1 > 0 && d2 < 0) || (d1 < 0 && d2 > 0)) && ((d3 > 0 && d4 < 0) || (d3 < 0 && d4 > 0));
+    }
+
+    private static double cross(Position origin, Position a, Position b) {
+        return (a.lng() - origin.lng()) * (b.lat() - origin.lat()) - (a.lat() - origin.lat()) * (b.lng() - origin.lng());
+    }
+
+    private static boolean containsStrictly(Position[] zone, Position point) {
+        boolean inside = false;
+        for (int i = 0, j = zone.length - 1; i < zone.length; j = i++) {
+            if ((zone[i].lat() > point.lat()) != (zone[j].lat() > point.lat())
+                    && point.lng() < (zone[j].lng() - zone[i].lng()) * (point.lat() - zone[i].lat()) / (zone[j].lat() - zone[i].lat()) + zone[i].lng()) {
+                inside = !inside;
+            }
+        }
+        return inside;
+    }
+
+    private static double distance(Position a, Position b) {
+        return Math.hypot(a.lng() - b.lng(), a.lat() - b.lat());
+    }
+}
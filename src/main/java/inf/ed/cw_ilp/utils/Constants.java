@@ -16,6 +16,12 @@ public class Constants {
             180.0, 202.5, 225.0, 247.5, 270.0, 292.5, 315.0, 337.5,360.0
     ));
 
+    // Length of a single drone move, in degrees
+    public static final double MOVE_DISTANCE = 0.00015;
+
+    // Two positions within this distance count as the same place
+    public static final double CLOSE_DISTANCE = 0.00015;
+
     public static final Position APPLETON_TOWER = new Position(-3.186874, 55.944494);
 
     public static final int DELIVERY_COST = 100;
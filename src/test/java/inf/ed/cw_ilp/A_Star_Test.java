@@ -21,24 +21,26 @@ public class A_Star_Test {
     @BeforeEach
     public void setup() {
 
+        // Thousandths of a degree, so every target is well within MAX_DRONE_MOVES of the start.
+        // Like Appleton Tower, the end is inside the central area: a route may not leave it once in.
         start = new Position(0, 0);
-        end = new Position(10, 10);
+        end = new Position(0.007, 0.007);
 
         // Define central area
         centralArea = new nameData.NamedRegion("Central", new Position[]{
-                new Position(2, 2),
-                new Position(8, 2),
-                new Position(8, 8),
-                new Position(2, 8)
+                new Position(0.002, 0.002),
+                new Position(0.008, 0.002),
+                new Position(0.008, 0.008),
+                new Position(0.002, 0.008)
         });
 
         // Define no-fly zones
         noFlyZones = new ArrayList<>();
         noFlyZones.add(new nameData.NamedRegion("NoFlyZone1", new Position[]{
-                new Position(4, 4),
-                new Position(6, 4),
-                new Position(6, 6),
-                new Position(4, 6)
+                new Position(0.0045, 0.0045),
+                new Position(0.0055, 0.0045),
+                new Position(0.0055, 0.0055),
+                new Position(0.0045, 0.0055)
         }));
 
         aStar = new A_Star(start, end, centralArea, noFlyZones);
@@ -54,7 +56,7 @@ public class A_Star_Test {
         assertNotNull(path, "Path should not be null.");
         assertFalse(path.isEmpty(), "Path should not be empty.");
         assertEquals(start, path.get(0), "Path should start at the start position.");
-        assertEquals(end, path.get(path.size() - 1), "Path should end at the end position.");
+        assertTrue(isCloseTo(path.get(path.size() - 1), end), "Path should end at the end position.");
     }
 
     @Test
@@ -74,7 +76,7 @@ public class A_Star_Test {
     @Test
     public void testPathStaysInCentralArea() {
         // Path should stay within the central area if entered
-        aStar = new A_Star(start, new Position(5, 5), centralArea, noFlyZones);
+        aStar = new A_Star(start, new Position(0.003, 0.007), centralArea, noFlyZones);
 
         List<Position> path = aStar.calculatePath();
         assertNotNull(path, "Path should not be null.");
@@ -94,11 +96,12 @@ public class A_Star_Test {
     public void testNoPathExists() {
         // Block all possible paths
         noFlyZones.add(new nameData.NamedRegion("NoFlyZone2", new Position[]{
-                new Position(0, 0),
-                new Position(10, 0),
-                new Position(10, 10),
-                new Position(0, 10)
+                new Position(-0.001, -0.001),
+                new Position(0.011, -0.001),
+                new Position(0.011, 0.011),
+                new Position(-0.001, 0.011)
         }));
+        aStar = new A_Star(start, end, centralArea, noFlyZones);
 
         List<Position> path = aStar.calculatePath();
         assertTrue(path.isEmpty(), "Path should be empty when no valid path exists.");
@@ -115,18 +118,19 @@ public class A_Star_Test {
         assertNotNull(path, "Path should not be null.");
         assertTrue(path.size() > 1, "Path should have multiple positions.");
         assertEquals(start, path.get(0), "Path should start at the start position.");
-        assertEquals(end, path.get(path.size() - 1), "Path should end at the end position.");
+        assertTrue(isCloseTo(path.get(path.size() - 1), end), "Path should end at the end position.");
     }
 
     @Test
     public void testPathWithMultipleNoFlyZones() {
         // Add additional no-fly zones and test path avoidance
         noFlyZones.add(new nameData.NamedRegion("NoFlyZone2", new Position[]{
-                new Position(7, 7),
-                new Position(9, 7),
-                new Position(9, 9),
-                new Position(7, 9)
+                new Position(0.0025, 0.0025),
+                new Position(0.0035, 0.0025),
+                new Position(0.0035, 0.0035),
+                new Position(0.0025, 0.0035)
         }));
+        aStar = new A_Star(start, end, centralArea, noFlyZones);
 
         List<Position> path = aStar.calculatePath();
         assertNotNull(path, "Path should not be null.");
@@ -140,8 +144,8 @@ public class A_Star_Test {
     @Test
     public void testPathWithStartAndEndInsideCentralArea() {
         // Test when start and end points are inside the central area
-        start = new Position(3, 3);
-        end = new Position(7, 7);
+        start = new Position(0.003, 0.003);
+        end = new Position(0.007, 0.007);
         aStar = new A_Star(start, end, centralArea, noFlyZones);
 
         List<Position> path = aStar.calculatePath();
@@ -153,6 +157,11 @@ public class A_Star_Test {
     }
 
 
+    // A path ends once it is within CLOSE_DISTANCE of its end
+    private boolean isCloseTo(Position position, Position end) {
+        return new LngLatAPI().isCloseToPoint(position, end);
+    }
+
     private boolean isInsideRegion(Position position, nameData.NamedRegion region) {
         LngLatAPI api = new LngLatAPI();
         return api.isPointInRegion(position, region);
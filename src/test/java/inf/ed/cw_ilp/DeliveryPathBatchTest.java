@@ -0,0 +1,247 @@
+package inf.ed.cw_ilp;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import inf.ed.cw_ilp.api.DeliveryPathService;
+import inf.ed.cw_ilp.api.DynamicDataService;
+import inf.ed.cw_ilp.api.FlightPlanService;
+import inf.ed.cw_ilp.api.GeoJsonWriter;
+import inf.ed.cw_ilp.controller.PizzaDroneController;
+import inf.ed.cw_ilp.model.Regions.Position;
+import inf.ed.cw_ilp.model.orderRelated.*;
+import inf.ed.cw_ilp.model.pathFinder.Airspace;
+import inf.ed.cw_ilp.model.pathFinder.DistanceField;
+import inf.ed.cw_ilp.model.pathFinder.PathEncoding;
+import inf.ed.cw_ilp.model.pathFinder.SearchBudget;
+import inf.ed.cw_ilp.model.pathFinder.SearchMode;
+import inf.ed.cw_ilp.model.pathFinder.nameData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class DeliveryPathBatchTest {
+
+    private static final List<String> EVERY_DAY =
+            List.of("MONDAY", "TUESDAY", "WEDNESDAY", "THURSDAY", "FRIDAY", "SATURDAY", "SUNDAY");
+
+    private DynamicDataService dds;
+    private DeliveryPathService deliveryPaths;
+    private PizzaDroneController controller;
+
+    @BeforeEach
+    public void setup() {
+        dds = Mockito.mock(DynamicDataService.class);
+        nameData.NamedRegion centralArea = new nameData.NamedRegion("Central", new Position[]{
+                new Position(-3.192473, 55.942617),
+                new Position(-3.184319, 55.942617),
+                new Position(-3.184319, 55.946233),
+                new Position(-3.192473, 55.946233)
+        });
+        Mockito.when(dds.fetchAirspace()).thenReturn(Airspace.compile(centralArea, List.of()));
+        Mockito.when(dds.fetchRestaurants()).thenReturn(List.of(
+                new nameData.Restaurant("Civerinos", new Position(-3.1913, 55.9455), EVERY_DAY,
+                        List.of(new Pizza("R1: Margarita", 1000))),
+                new nameData.Restaurant("Sora", new Position(-3.2025, 55.9433), EVERY_DAY,
+                        List.of(new Pizza("R2: Meat Lover", 1400)))));
+
+        deliveryPaths = new DeliveryPathService(dds, false, SearchMode.ASTAR, 200, 1_000_000, 5000, false);
+        controller = new PizzaDroneController(null, null, dds, deliveryPaths, null, new ObjectMapper());
+    }
+
+    @AfterEach
+    public void teardown() {
+        deliveryPaths.shutdown();
+    }
+
+    @Test
+    public void testBatchFetchesOnceAndReportsEveryOrder() throws Exception {
+        List<Order> orders = new ArrayList<>();
+        orders.add(order("1", "R1: Margarita", 1000));
+        orders.add(order("2", "R2: Meat Lover", 1400));
+        orders.add(order("3", "R1: Margarita", 1000));
+        orders.add(order("4", "R1: Margarita", 999));
+        orders.add(null);
+
+        List<DeliveryPathResult> results = run(orders);
+
+        assertEquals(5, results.size(), "Every order should get a result.");
+        assertEquals("1", results.get(0).orderNo());
+        assertEquals(Orderstats.DeliveryPathStatus.PATH_FOUND.name(), results.get(0).status());
+        assertEquals(Orderstats.DeliveryPathStatus.PATH_FOUND.name(), results.get(1).status());
+        assertEquals(results.get(0).path(), results.get(2).path(), "Orders from one restaurant share its path.");
+        assertNotEquals(results.get(0).path(), results.get(1).path());
+        assertEquals(Orderstats.DeliveryPathStatus.INVALID.name(), results.get(3).status());
+        assertEquals(Orderstats.OrderValidationCode.PRICE_FOR_PIZZA_INVALID.name(), results.get(3).orderValidationCode());
+        assertNull(results.get(3).path());
+        assertEquals(Orderstats.DeliveryPathStatus.INVALID.name(), results.get(4).status());
+
+        Mockito.verify(dds, Mockito.times(1)).fetchRestaurants();
+        Mockito.verify(dds, Mockito.times(1)).fetchAirspace();
+    }
+
+    @Test
+    public void testDayPlansAreRoundTripsForEveryOrder() throws Exception {
+        List<Order> day = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            day.add(i % 2 == 0 ? order("d" + i, "R1: Margarita", 1000) : order("d" + i, "R2: Meat Lover", 1400));
+        }
+        day.add(order("late", "R1: Margarita", 1));
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        FlightPlanService flightPlans = new FlightPlanService(dds, deliveryPaths, objectMapper, 60_000);
+
+        List<DeliveryPathResult> plans = new ArrayList<>();
+        Set<Thread> writers = new HashSet<>();
+        flightPlans.planDay(new ByteArrayInputStream(objectMapper.writeValueAsBytes(day)), written -> {
+            writers.add(Thread.currentThread());
+            plans.add(written);
+        }, new SearchBudget(Long.MAX_VALUE, null));
+
+        assertEquals(day.size(), plans.size(), "Every order should get a plan.");
+        assertEquals(Set.of(Thread.currentThread()), writers, "Plans should only be written by the calling thread.");
+        Map<String, DeliveryPathResult> byOrder = new HashMap<>();
+        plans.forEach(plan -> byOrder.put(plan.orderNo(), plan));
+        assertEquals(Orderstats.DeliveryPathStatus.INVALID.name(), byOrder.get("late").status());
+
+        DeliveryPathResult plan = byOrder.get("d0");
+        assertEquals(Orderstats.DeliveryPathStatus.PATH_FOUND.name(), plan.status());
+        List<Position> trip = plan.path();
+        int half = trip.size() / 2;
+        assertEquals(new Position(-3.1913, 55.9455), trip.get(half - 1), "The plan should reach the restaurant.");
+        assertEquals(trip.get(half - 1), trip.get(half), "The drone should hover to collect the order.");
+        assertEquals(trip.get(0), trip.get(trip.size() - 1), "The drone should end where it set off.");
+        assertEquals(trip.get(trip.size() - 2), trip.get(trip.size() - 1), "The drone should hover to deliver.");
+        Mockito.verify(dds, Mockito.times(1)).fetchRestaurants();
+    }
+
+    @Test
+    public void testMatchingETagAnswersNotModifiedWithoutSearching() throws Exception {
+        DeliveryPathService spied = Mockito.spy(deliveryPaths);
+        PizzaDroneController tagged = new PizzaDroneController(null, null, dds, spied, null, new ObjectMapper());
+        Order order = order("1", "R1: Margarita", 1000);
+
+        ResponseEntity<?> first = await(tagged.calcDeliveryPath(order, null, null, null, null, null));
+        assertEquals(HttpStatus.OK, first.getStatusCode());
+        String etag = first.getHeaders().getETag();
+        assertNotNull(etag, "A* paths should be tagged.");
+
+        Mockito.clearInvocations(spied);
+        ResponseEntity<?> again = await(tagged.calcDeliveryPath(order, null, null, null, null, etag));
+        assertEquals(HttpStatus.NOT_MODIFIED, again.getStatusCode());
+        assertNull(again.getBody());
+        assertEquals(List.of(HttpHeaders.ACCEPT), again.getHeaders().getVary());
+        Mockito.verify(spied, Mockito.never()).pathFor(Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any());
+
+        ResponseEntity<?> segments = await(tagged.calcDeliveryPath(order, null, null, PathEncoding.Format.SEGMENTS, null, etag));
+        assertEquals(HttpStatus.OK, segments.getStatusCode(), "Another representation has another tag.");
+        assertNotEquals(etag, segments.getHeaders().getETag());
+
+        // The parallel search may pick another of the equal-cost paths, so its tag comes from the path it served
+        ResponseEntity<?> parallel = await(tagged.calcDeliveryPath(order, SearchMode.PARALLEL, null, null, null, null));
+        String parallelTag = parallel.getHeaders().getETag();
+        assertEquals(deliveryPaths.etagFor(dds.fetchRestaurants().get(0), dds.fetchAirspace(),
+                deliveryPaths.cachedPath(new Position(-3.1913, 55.9455), dds.fetchAirspace(), SearchMode.PARALLEL),
+                "json-POSITIONS"), parallelTag);
+        assertEquals(HttpStatus.NOT_MODIFIED,
+                await(tagged.calcDeliveryPath(order, SearchMode.PARALLEL, null, null, null, parallelTag)).getStatusCode());
+    }
+
+    @Test
+    public void testMatchingETagAnswersNotModifiedAfterSearching() throws Exception {
+        Order order = order("1", "R1: Margarita", 1000);
+        String etag = await(controller.calcDeliveryPath(order, null, null, null, null, null)).getHeaders().getETag();
+
+        // A restarted server has nothing cached, but the path it finds is the one the client holds
+        DeliveryPathService restarted = new DeliveryPathService(dds, false, SearchMode.ASTAR, 200, 1_000_000, 5000, false);
+        try {
+            PizzaDroneController fresh = new PizzaDroneController(null, null, dds, restarted, null, new ObjectMapper());
+            ResponseEntity<?> again = await(fresh.calcDeliveryPath(order, null, null, null, null, etag));
+            assertEquals(HttpStatus.NOT_MODIFIED, again.getStatusCode());
+            assertNull(again.getBody());
+            assertEquals(etag, again.getHeaders().getETag());
+            assertEquals(List.of(HttpHeaders.ACCEPT), again.getHeaders().getVary());
+        } finally {
+            restarted.shutdown();
+        }
+    }
+
+    @Test
+    public void testDistanceFieldOnlyServesAStarRequests() {
+        DeliveryPathService withField = new DeliveryPathService(dds, true, SearchMode.ASTAR, 200, 1_000_000, 5000, false);
+        try {
+            Airspace airspace = dds.fetchAirspace();
+            DistanceField.forAirspace(airspace);
+            Position restaurant = new Position(-3.1913, 55.9455);
+
+            assertTrue(Double.isNaN(withField.pathFor(restaurant, airspace).suboptimalityBound()),
+                    "An A* request should be read off the field.");
+            DeliveryPathService.DeliveryPath anytime = withField.pathFor(restaurant, airspace, SearchMode.ANYTIME,
+                    null, withField.newBudget());
+            assertFalse(Double.isNaN(anytime.suboptimalityBound()), "An anytime request should get an anytime path.");
+        } finally {
+            withField.shutdown();
+        }
+    }
+
+    @Test
+    public void testGeoJsonPathIsAnsweredLater() throws Exception {
+        DeferredResult<ResponseEntity<StreamingResponseBody>> deferred =
+                controller.calcDeliveryPathAsGeoJson(order("1", "R1: Margarita", 1000), null, null);
+
+        ResponseEntity<?> response = await(deferred);
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(GeoJsonWriter.GEO_JSON, response.getHeaders().getContentType());
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        ((StreamingResponseBody) response.getBody()).writeTo(body);
+        assertTrue(body.toString(StandardCharsets.UTF_8).contains("LineString"), "The path should be a LineString.");
+
+        ResponseEntity<?> moves = await(controller.calcDeliveryPathAsGeoJson(order("1", "R1: Margarita", 1000),
+                PathEncoding.Format.MOVES, null));
+        assertEquals(HttpStatus.BAD_REQUEST, moves.getStatusCode());
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<DeliveryPathResult> run(List<Order> orders) throws InterruptedException {
+        ResponseEntity<?> response = await(controller.calcDeliveryPaths(orders, null, null));
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        return (List<DeliveryPathResult>) response.getBody();
+    }
+
+    private static ResponseEntity<?> await(DeferredResult<? extends ResponseEntity<?>> deferred) throws InterruptedException {
+        long deadline = System.nanoTime() + 30_000_000_000L;
+        while (!deferred.hasResult() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        ResponseEntity<?> response = (ResponseEntity<?>) deferred.getResult();
+        assertNotNull(response, "The request should finish.");
+        return response;
+    }
+
+    private static Order order(String orderNo, String pizza, int price) {
+        Order order = new Order();
+        order.orderNo = orderNo;
+        order.orderDate = LocalDate.now().toString();
+        order.pizzasInOrder = List.of(new Pizza(pizza, price));
+        order.priceTotalInPence = price + 100;
+        order.creditCardInformation = new creditCardInformation("1234567890123456", "12/30", "123");
+        return order;
+    }
+}
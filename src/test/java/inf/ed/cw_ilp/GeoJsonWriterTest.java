@@ -0,0 +1,41 @@
+package inf.ed.cw_ilp;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import inf.ed.cw_ilp.api.GeoJsonWriter;
+import inf.ed.cw_ilp.model.Regions.Position;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+public class GeoJsonWriterTest {
+
+    @Test
+    public void testWritesOneLineStringWithoutHovers() throws Exception {
+        List<Position> path = List.of(
+                new Position(-3.1913, 55.9455),
+                new Position(-3.19115, 55.9455),
+                new Position(-3.19115, 55.9455),
+                new Position(-3.1910, 55.9455));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        GeoJsonWriter.writeDeliveryPath(path, out);
+        JsonObject geoJson = JsonParser.parseString(out.toString(StandardCharsets.UTF_8)).getAsJsonObject();
+
+        assertEquals("FeatureCollection", geoJson.get("type").getAsString());
+        JsonObject feature = geoJson.getAsJsonArray("features").get(0).getAsJsonObject();
+        assertEquals("DeliveryPath", feature.getAsJsonObject("properties").get("type").getAsString());
+        JsonObject geometry = feature.getAsJsonObject("geometry");
+        assertEquals("LineString", geometry.get("type").getAsString());
+
+        JsonArray coordinates = geometry.getAsJsonArray("coordinates");
+        assertEquals(3, coordinates.size(), "The hover should be written once.");
+        assertEquals(-3.19115, coordinates.get(1).getAsJsonArray().get(0).getAsDouble());
+        assertEquals(55.9455, coordinates.get(1).getAsJsonArray().get(1).getAsDouble());
+    }
+}
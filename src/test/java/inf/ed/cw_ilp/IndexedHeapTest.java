@@ -0,0 +1,66 @@
+package inf.ed.cw_ilp;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import inf.ed.cw_ilp.model.pathFinder.IndexedHeap;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+public class IndexedHeapTest {
+
+    private IndexedHeap heap;
+
+    @BeforeEach
+    public void setup() {
+        heap = new IndexedHeap(4);
+    }
+
+    @Test
+    public void testPopsInKeyOrder() {
+        Random random = new Random(42);
+        for (int node = 0; node < 500; node++) {
+            heap.push(node, random.nextDouble());
+        }
+
+        double previous = Double.NEGATIVE_INFINITY;
+        while (!heap.isEmpty()) {
+            double key = heap.peekKey();
+            heap.pop();
+            assertTrue(key >= previous, "Keys should come out in ascending order.");
+            previous = key;
+        }
+    }
+
+    @Test
+    public void testDecreaseKeyDoesNotDuplicate() {
+        heap.push(1, 5.0);
+        heap.push(2, 3.0);
+        heap.pushOrDecrease(1, 1.0);
+        heap.pushOrDecrease(2, 10.0); // higher key is ignored
+
+        assertEquals(2, heap.size(), "A node should only be queued once.");
+        assertEquals(1, heap.pop(), "Decreased node should come out first.");
+        assertEquals(3.0, heap.peekKey(), "Higher key should not replace a lower one.");
+        assertEquals(2, heap.pop());
+        assertTrue(heap.isEmpty());
+    }
+
+    @Test
+    public void testRemoveAndClear() {
+        for (int node = 0; node < 10; node++) {
+            heap.push(node, node);
+        }
+        heap.remove(0);
+        heap.remove(5);
+        assertFalse(heap.contains(5), "Removed node should no longer be queued.");
+        assertEquals(1, heap.pop());
+
+        heap.clear();
+        assertTrue(heap.isEmpty());
+        assertFalse(heap.contains(3), "Clear should forget every node.");
+        heap.push(3, 2.0);
+        assertEquals(3, heap.pop());
+    }
+}
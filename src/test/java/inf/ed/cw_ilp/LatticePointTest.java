@@ -0,0 +1,78 @@
+package inf.ed.cw_ilp;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import inf.ed.cw_ilp.model.Regions.Position;
+import inf.ed.cw_ilp.model.pathFinder.LatticePoint;
+import inf.ed.cw_ilp.model.pathFinder.MoveTable;
+import inf.ed.cw_ilp.model.pathFinder.NodeStore;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+public class LatticePointTest {
+
+    private final Position restaurant = new Position(-3.1940, 55.9439);
+
+    @Test
+    public void testMoveOrderDoesNotChangeThePosition() {
+        List<Integer> moves = randomMoves(new Random(7), 200);
+        Position first = walk(restaurant, moves);
+        LatticePoint point = LatticePoint.of(restaurant, first);
+
+        Random random = new Random(11);
+        for (int i = 0; i < 20; i++) {
+            Collections.shuffle(moves, random);
+            Position shuffled = walk(restaurant, moves);
+            assertEquals(first, shuffled, "The same moves in any order should land on the same coordinates.");
+            assertEquals(point, LatticePoint.of(restaurant, shuffled));
+        }
+        assertEquals(first, point.toPosition(restaurant), "Converting back should give the same coordinates.");
+    }
+
+    @Test
+    public void testNodeStoreFindsStateReachedByAnotherRoute() {
+        // Near the prime meridian adding offsets does round, but the lattice point is still the same
+        Position origin = new Position(0.0001, 55.9439);
+        NodeStore nodes = new NodeStore(16);
+        nodes.reset(origin);
+
+        List<Integer> moves = randomMoves(new Random(3), 500);
+        Position reached = walk(origin, moves);
+        int node = nodes.add(reached.lng(), reached.lat(), 0, 0, NodeStore.NONE);
+
+        Collections.reverse(moves);
+        Position again = walk(origin, moves);
+        assertEquals(node, nodes.find(again.lng(), again.lat()), "Both routes should lead to the same state.");
+        assertEquals(1, nodes.size());
+    }
+
+    @Test
+    public void testStepIsOneMoveLong() {
+        for (int direction = 0; direction < MoveTable.DIRECTIONS; direction++) {
+            Position next = LatticePoint.ORIGIN.step(direction).toPosition(restaurant);
+            double length = Math.hypot(next.lng() - restaurant.lng(), next.lat() - restaurant.lat());
+            assertEquals(0.00015, length, 1e-12, "Every step should be one move long.");
+        }
+    }
+
+    private static List<Integer> randomMoves(Random random, int count) {
+        List<Integer> moves = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            moves.add(random.nextInt(MoveTable.DIRECTIONS));
+        }
+        return moves;
+    }
+
+    private static Position walk(Position from, List<Integer> moves) {
+        double lng = from.lng(), lat = from.lat();
+        for (int direction : moves) {
+            lng += MoveTable.dLng(direction);
+            lat += MoveTable.dLat(direction);
+        }
+        return new Position(lng, lat);
+    }
+}
@@ -8,6 +8,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import inf.ed.cw_ilp.model.Regions.Position;
+import inf.ed.cw_ilp.model.Regions.PreparedRegion;
 import inf.ed.cw_ilp.model.Regions.Requests;
 import inf.ed.cw_ilp.model.pathFinder.nameData;
 import inf.ed.cw_ilp.model.Regions.Region;
@@ -80,6 +81,7 @@ public class LngLatAPITest {
         assertNotNull(response.getBody(), "Response body should not be null");
         assertEquals(0.00015, response.getBody().lng(), 0.00001, "Longitude should be correct");
         assertEquals(0, response.getBody().lat(), 0.00001, "Latitude should be correct");
+        assertEquals(new Position(0.00015, 0), response.getBody(), "A move east should be exactly one move distance.");
     }
 
     @Test
@@ -148,6 +150,33 @@ public class LngLatAPITest {
         assertFalse(lngLatAPI.isPointInRegion(point, namedRegion), "Point should be outside the named region");
     }
 
+    @Test
+    public void testPreparedRegionMatchesPolygonTest() {
+        Region region = new Region("Slanted", new Position[]{
+                new Position(0, 0),
+                new Position(4, 1),
+                new Position(5, 4),
+                new Position(2, 3),
+                new Position(0, 4)
+        });
+        PreparedRegion prepared = PreparedRegion.of(region);
+
+        // Vertices and edge points, then a lattice of points around the polygon
+        for (Position vertex : region.vertices()) {
+            assertTrue(prepared.contains(vertex), "Vertices should count as inside");
+        }
+        assertTrue(prepared.contains(new Position(0, 2)), "Points on a vertical edge should count as inside");
+        for (double lng = -1; lng <= 6; lng += 0.25) {
+            for (double lat = -1; lat <= 5; lat += 0.25) {
+                Position point = new Position(lng, lat);
+                assertEquals(isInsideTestRegion(point, region), prepared.contains(point),
+                        "Prepared region should agree with the polygon test at " + point);
+                assertEquals(prepared.contains(point), PreparedRegion.contains(region.vertices(), point),
+                        "The one-off test should agree with the prepared region at " + point);
+            }
+        }
+    }
+
     public boolean isInsideTestRegion(Position position, Region region) {
         Position[] vertices = region.vertices();
         return isPointInsidePolygon(position, vertices);
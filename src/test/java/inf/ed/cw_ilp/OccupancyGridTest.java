@@ -0,0 +1,103 @@
+package inf.ed.cw_ilp;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import inf.ed.cw_ilp.api.LngLatAPI;
+import inf.ed.cw_ilp.model.Regions.Position;
+import inf.ed.cw_ilp.model.Regions.PreparedRegion;
+import inf.ed.cw_ilp.model.pathFinder.OccupancyGrid;
+import inf.ed.cw_ilp.model.pathFinder.nameData;
+import inf.ed.cw_ilp.utils.Constants;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class OccupancyGridTest {
+
+    private List<nameData.NamedRegion> regions;
+    private OccupancyGrid grid;
+
+    @BeforeEach
+    public void setup() {
+        // A rectangle and a concave, slanted polygon near Appleton Tower
+        regions = List.of(
+                new nameData.NamedRegion("Rectangle", new Position[]{
+                        new Position(-3.1900, 55.9440),
+                        new Position(-3.1880, 55.9440),
+                        new Position(-3.1880, 55.9450),
+                        new Position(-3.1900, 55.9450)
+                }),
+                new nameData.NamedRegion("Concave", new Position[]{
+                        new Position(-3.1860, 55.9430),
+                        new Position(-3.1830, 55.9432),
+                        new Position(-3.1845, 55.9440),
+                        new Position(-3.1828, 55.9449),
+                        new Position(-3.1862, 55.9446)
+                })
+        );
+        grid = OccupancyGrid.compile(regions, Constants.APPLETON_TOWER);
+    }
+
+    @Test
+    public void testGridAgreesWithExactTest() {
+        LngLatAPI api = new LngLatAPI();
+        Random random = new Random(7);
+        for (int i = 0; i < 20000; i++) {
+            Position point = new Position(-3.1920 + random.nextDouble() * 0.0110, 55.9420 + random.nextDouble() * 0.0045);
+            boolean expected = regions.stream().anyMatch(region -> api.isPointInRegion(point, region));
+            assertEquals(expected, grid.contains(point.lng(), point.lat()), "Grid should agree with the polygon test at " + point);
+        }
+    }
+
+    @Test
+    public void testBatchAgreesWithSingleTests() {
+        LngLatAPI api = new LngLatAPI();
+        Random random = new Random(13);
+        // Random points plus every vertex and edge midpoint, so the on-edge rules are covered too
+        List<Position> points = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            points.add(new Position(-3.1920 + random.nextDouble() * 0.0110, 55.9420 + random.nextDouble() * 0.0045));
+        }
+        for (nameData.NamedRegion region : regions) {
+            Position[] vertices = region.getCoordinates();
+            for (int i = 0; i < vertices.length; i++) {
+                Position next = vertices[(i + 1) % vertices.length];
+                points.add(vertices[i]);
+                points.add(new Position((vertices[i].lng() + next.lng()) / 2, (vertices[i].lat() + next.lat()) / 2));
+            }
+        }
+
+        Position[] batch = points.toArray(new Position[0]);
+        double[] lng = points.stream().mapToDouble(Position::lng).toArray();
+        double[] lat = points.stream().mapToDouble(Position::lat).toArray();
+        boolean[] inGrid = new boolean[batch.length];
+        grid.markContained(lng, lat, batch.length, inGrid);
+
+        for (nameData.NamedRegion region : regions) {
+            boolean[] inRegion = new boolean[batch.length];
+            PreparedRegion.of(region).markContained(lng, lat, batch.length, inRegion);
+            for (int i = 0; i < batch.length; i++) {
+                assertEquals(api.isPointInRegion(batch[i], region), inRegion[i], "Batch should agree with the single test at " + batch[i]);
+            }
+        }
+        for (int i = 0; i < batch.length; i++) {
+            assertEquals(grid.contains(lng[i], lat[i]), inGrid[i], "Grid batch should agree with the single lookup at " + batch[i]);
+        }
+    }
+
+    @Test
+    public void testVerticesAndEdgesCountAsInside() {
+        assertTrue(grid.contains(-3.1900, 55.9440), "A vertex should be inside.");
+        assertTrue(grid.contains(-3.1890, 55.9450), "A point on an edge should be inside.");
+        assertFalse(grid.contains(-3.1700, 55.9440), "A point far from every region should be outside.");
+    }
+
+    @Test
+    public void testEmptyRegionContainsNothing() {
+        OccupancyGrid empty = OccupancyGrid.compile(List.of(new nameData.NamedRegion("Empty", new Position[]{})), Constants.APPLETON_TOWER);
+        assertFalse(empty.contains(-3.186874, 55.944494), "A region without vertices should contain nothing.");
+    }
+}
@@ -0,0 +1,104 @@
+package inf.ed.cw_ilp;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import inf.ed.cw_ilp.model.Regions.Position;
+import inf.ed.cw_ilp.model.pathFinder.A_Star;
+import inf.ed.cw_ilp.model.pathFinder.Airspace;
+import inf.ed.cw_ilp.model.pathFinder.BidirectionalAStar;
+import inf.ed.cw_ilp.model.pathFinder.DronePathCodec;
+import inf.ed.cw_ilp.model.pathFinder.PathEncoding;
+import inf.ed.cw_ilp.model.pathFinder.nameData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static inf.ed.cw_ilp.utils.Constants.APPLETON_TOWER;
+
+public class PathEncodingTest {
+
+    private final Position restaurant = new Position(-3.2025, 55.9433);
+
+    private Airspace airspace;
+
+    @BeforeEach
+    public void setup() {
+        nameData.NamedRegion centralArea = new nameData.NamedRegion("Central", new Position[]{
+                new Position(-3.192473, 55.942617),
+                new Position(-3.184319, 55.942617),
+                new Position(-3.184319, 55.946233),
+                new Position(-3.192473, 55.946233)
+        });
+        airspace = Airspace.compile(centralArea, List.of());
+    }
+
+    @Test
+    public void testMovesReplayToTheSamePath() {
+        for (List<Position> path : List.of(
+                new A_Star(restaurant, APPLETON_TOWER, airspace).calculatePath(),
+                new BidirectionalAStar(restaurant, APPLETON_TOWER, airspace).calculatePath())) {
+            PathEncoding.MoveSequence moves = PathEncoding.moves(path);
+            List<Position> replayed = PathEncoding.decode(moves);
+
+            assertEquals(path.size(), replayed.size());
+            for (int i = 0; i < path.size(); i++) {
+                assertEquals(path.get(i).lng(), replayed.get(i).lng(), 1e-12, "Replayed moves should retrace the path.");
+                assertEquals(path.get(i).lat(), replayed.get(i).lat(), 1e-12, "Replayed moves should retrace the path.");
+            }
+            assertTrue(moves.runs().size() * 10 < path.size(), "A straight-ish path should need only a few runs.");
+        }
+    }
+
+    @Test
+    public void testSegmentsKeepEndsAndTurns() {
+        List<Position> path = new A_Star(restaurant, APPLETON_TOWER, airspace).calculatePath();
+        List<Position> segments = PathEncoding.segments(path);
+
+        assertEquals(path.get(0), segments.get(0));
+        assertEquals(path.get(path.size() - 1), segments.get(segments.size() - 1));
+        assertTrue(segments.size() * 10 < path.size(), "Straight runs should collapse to single segments.");
+        assertEquals(PathEncoding.moves(path).runs().size() + 1, segments.size(), "One vertex per run, plus the start.");
+    }
+
+    @Test
+    public void testHoversAreKept() {
+        List<Position> path = new ArrayList<>(new A_Star(restaurant, APPLETON_TOWER, airspace).calculatePath());
+        Position end = path.get(path.size() - 1);
+        path.add(end);
+
+        List<PathEncoding.Run> runs = PathEncoding.moves(path).runs();
+        assertEquals(new PathEncoding.Run(PathEncoding.HOVER, 1), runs.get(runs.size() - 1));
+        List<Position> segments = PathEncoding.segments(path);
+        assertEquals(end, segments.get(segments.size() - 2), "A hover should repeat its vertex.");
+        assertEquals(end, segments.get(segments.size() - 1));
+    }
+
+    @Test
+    public void testBinaryPathRoundTripsAndIsSmall() throws Exception {
+        List<Position> path = new ArrayList<>(new A_Star(restaurant, APPLETON_TOWER, airspace).calculatePath());
+        path.add(path.get(path.size() - 1));
+
+        byte[] encoded = DronePathCodec.encode(airspace.version(), "Sora", path);
+        DronePathCodec.DronePath decoded = DronePathCodec.decode(encoded);
+
+        assertEquals(airspace.version(), decoded.airspaceVersion());
+        assertEquals("Sora", decoded.restaurant());
+        List<Position> replayed = decoded.positions();
+        assertEquals(path.size(), replayed.size());
+        for (int i = 0; i < path.size(); i++) {
+            assertEquals(path.get(i).lng(), replayed.get(i).lng(), 1e-12, "Decoding should retrace the path.");
+            assertEquals(path.get(i).lat(), replayed.get(i).lat(), 1e-12, "Decoding should retrace the path.");
+        }
+        int jsonSize = new ObjectMapper().writeValueAsBytes(path).length;
+        assertTrue(encoded.length * 50 < jsonSize, "Binary path of " + encoded.length + " bytes vs " + jsonSize + " of JSON.");
+    }
+
+    @Test
+    public void testRejectsStepsThatAreNotMoves() {
+        List<Position> path = List.of(restaurant, new Position(restaurant.lng() + 0.001, restaurant.lat()));
+        assertThrows(IllegalArgumentException.class, () -> PathEncoding.moves(path));
+    }
+}
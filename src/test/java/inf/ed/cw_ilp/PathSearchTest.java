@@ -0,0 +1,341 @@
+package inf.ed.cw_ilp;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import inf.ed.cw_ilp.model.Regions.Position;
+import inf.ed.cw_ilp.model.pathFinder.A_Star;
+import inf.ed.cw_ilp.model.pathFinder.Airspace;
+import inf.ed.cw_ilp.model.pathFinder.AnytimeAStar;
+import inf.ed.cw_ilp.model.pathFinder.BidirectionalAStar;
+import inf.ed.cw_ilp.model.pathFinder.ClusterGraph;
+import inf.ed.cw_ilp.model.pathFinder.DistanceField;
+import inf.ed.cw_ilp.model.pathFinder.Heuristic;
+import inf.ed.cw_ilp.model.pathFinder.HierarchicalSearch;
+import inf.ed.cw_ilp.model.pathFinder.JumpPointSearch;
+import inf.ed.cw_ilp.model.pathFinder.LandmarkHeuristic;
+import inf.ed.cw_ilp.model.pathFinder.LifelongPlanningAStar;
+import inf.ed.cw_ilp.model.pathFinder.ParallelAStar;
+import inf.ed.cw_ilp.model.pathFinder.SearchAbortedException;
+import inf.ed.cw_ilp.model.pathFinder.SearchBudget;
+import inf.ed.cw_ilp.model.pathFinder.nameData;
+import inf.ed.cw_ilp.utils.Constants;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static inf.ed.cw_ilp.utils.Constants.APPLETON_TOWER;
+
+public class PathSearchTest {
+
+    // A restaurant to the west of the central area, with a no-fly zone in between
+    private final Position restaurant = new Position(-3.1940, 55.9439);
+
+    private Airspace airspace;
+
+    @BeforeEach
+    public void setup() {
+        nameData.NamedRegion centralArea = rectangle("Central", -3.192473, 55.942617, -3.184319, 55.946233);
+        List<nameData.NamedRegion> noFlyZones = List.of(
+                rectangle("George Square", -3.190578, 55.940910, -3.187997, 55.941634),
+                rectangle("Bristo Square", -3.189543, 55.944923, -3.187703, 55.945478),
+                rectangle("Blocker", -3.1915, 55.9430, -3.1905, 55.9455)
+        );
+        airspace = Airspace.compile(centralArea, noFlyZones);
+    }
+
+    @Test
+    public void testAStarPathIsLegal() {
+        A_Star search = new A_Star(restaurant, APPLETON_TOWER, airspace);
+        assertLegalPath(search.calculatePath());
+        assertTrue(Double.isNaN(search.suboptimalityBound()), "A corridor path should claim no bound over the whole airspace.");
+    }
+
+    @Test
+    public void testBidirectionalPathIsLegalAndNoLonger() {
+        List<Position> path = new BidirectionalAStar(restaurant, APPLETON_TOWER, airspace).calculatePath();
+        assertLegalPath(path);
+
+        int aStarMoves = new A_Star(restaurant, APPLETON_TOWER, airspace).calculatePath().size();
+        assertTrue(path.size() <= aStarMoves, "Bidirectional path should be no longer than the A* one.");
+    }
+
+    @Test
+    public void testAnytimeWithoutBudgetStillFindsABoundedPath() {
+        AnytimeAStar search = new AnytimeAStar(restaurant, APPLETON_TOWER, airspace, Duration.ZERO);
+        assertLegalPath(search.calculatePath());
+        assertTrue(search.suboptimalityBound() >= 1 && search.suboptimalityBound() <= 2.5,
+                "The first path should be within the initial inflation.");
+    }
+
+    @Test
+    public void testAnytimeWithTimeReachesTheShortestPath() {
+        AnytimeAStar search = new AnytimeAStar(restaurant, APPLETON_TOWER, airspace, Duration.ofSeconds(30));
+        List<Position> path = search.calculatePath();
+        assertLegalPath(path);
+        assertEquals(1.0, search.suboptimalityBound(), "With enough time the bound should reach 1.");
+
+        int aStarMoves = new A_Star(restaurant, APPLETON_TOWER, airspace).calculatePath().size();
+        assertTrue(path.size() <= aStarMoves, "Anytime path should be no longer than the A* one.");
+    }
+
+    @Test
+    public void testAnytimeKeepsItsPathWhenTheSearchBudgetRunsOut() {
+        SearchBudget quick = SearchBudget.standard();
+        new AnytimeAStar(restaurant, APPLETON_TOWER, airspace, Duration.ZERO, quick).calculatePath();
+
+        // Enough expansions for the first path, but not for tightening it
+        SearchBudget capped = new SearchBudget(quick.getExpansions() + 50, null);
+        AnytimeAStar search = new AnytimeAStar(restaurant, APPLETON_TOWER, airspace, Duration.ofSeconds(30), capped);
+        assertLegalPath(search.calculatePath());
+        assertTrue(capped.getExpansions() > quick.getExpansions() + 50, "The budget should have run out while tightening.");
+        assertTrue(search.suboptimalityBound() >= 1 && search.suboptimalityBound() <= 2.5,
+                "The path found before the budget ran out should keep its bound.");
+    }
+
+    @Test
+    public void testJumpPointPathMatchesAStarWithFewerExpansions() {
+        JumpPointSearch jumpPoint = new JumpPointSearch(restaurant, APPLETON_TOWER, airspace);
+        List<Position> path = jumpPoint.calculatePath();
+        assertLegalPath(path);
+
+        assertEquals(new A_Star(restaurant, APPLETON_TOWER, airspace).calculatePath().size(), path.size(),
+                "Jump point path should cost the same as the A* one.");
+
+        // Compared with A* under the same straight-line heuristic that jump point search uses
+        A_Star aStar = new A_Star(restaurant, APPLETON_TOWER, airspace, SearchBudget.standard(), Heuristic.euclidean(APPLETON_TOWER));
+        aStar.calculatePath();
+        assertTrue(jumpPoint.getExpandedNodes() < aStar.getExpandedNodes(), "Jump point search should expand fewer nodes.");
+    }
+
+    @Test
+    public void testJumpPointSkipsOpenTerrain() {
+        // With every region well out of the way the search should only stop at a handful of jump points
+        Position farAway = new Position(APPLETON_TOWER.lng() + 0.0081, APPLETON_TOWER.lat() + 0.0047);
+        Airspace open = Airspace.compile(rectangle("Central", -3.25, 55.90, -3.24, 55.91), List.of());
+
+        JumpPointSearch jumpPoint = new JumpPointSearch(farAway, APPLETON_TOWER, open);
+        List<Position> path = jumpPoint.calculatePath();
+        assertEquals(new A_Star(farAway, APPLETON_TOWER, open).calculatePath().size(), path.size(),
+                "Jump point path should cost the same as the A* one.");
+
+        A_Star aStar = new A_Star(farAway, APPLETON_TOWER, open, SearchBudget.standard(), Heuristic.euclidean(APPLETON_TOWER));
+        aStar.calculatePath();
+        assertTrue(jumpPoint.getExpandedNodes() * 10 < aStar.getExpandedNodes(), "Jump point search should expand far fewer nodes.");
+    }
+
+    @Test
+    public void testHierarchicalPathIsLegalAndClose() {
+        HierarchicalSearch search = new HierarchicalSearch(restaurant, APPLETON_TOWER, airspace);
+        List<Position> path = search.calculatePath();
+        assertTrue(Double.isNaN(search.suboptimalityBound()), "A refined cluster route should claim no bound.");
+        assertLegalPath(path);
+
+        int aStarMoves = new A_Star(restaurant, APPLETON_TOWER, airspace).calculatePath().size();
+        assertTrue(path.size() <= aStarMoves * 1.1, "Hierarchical path should be close to the A* length.");
+        assertSame(ClusterGraph.forAirspace(airspace), ClusterGraph.forAirspace(airspace), "The cluster graph should be built once per airspace.");
+    }
+
+    @Test
+    public void testParallelPathIsLegalAndAsShortAsAStar() {
+        List<Position> aStarPath = new A_Star(restaurant, APPLETON_TOWER, airspace).calculatePath();
+        for (int workers : new int[] {1, 4}) {
+            List<Position> path = new ParallelAStar(restaurant, APPLETON_TOWER, airspace, SearchBudget.standard(), workers).calculatePath();
+            assertLegalPath(path);
+            assertEquals(aStarPath.size(), path.size(), "Parallel path should be as short as the A* one.");
+        }
+    }
+
+    @Test
+    public void testParallelSearchesShareABoundedPool() {
+        int moves = new A_Star(restaurant, APPLETON_TOWER, airspace).calculatePath().size();
+        // Three searches of eight workers need more threads than the pool has, so some wait their turn
+        List<CompletableFuture<List<Position>>> searches = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            searches.add(CompletableFuture.supplyAsync(() ->
+                    new ParallelAStar(restaurant, APPLETON_TOWER, airspace, SearchBudget.standard(), 8).calculatePath()));
+        }
+        for (CompletableFuture<List<Position>> search : searches) {
+            assertEquals(moves, search.join().size(), "Every queued search should still finish with the A* length.");
+        }
+        assertThrows(IllegalArgumentException.class,
+                () -> new ParallelAStar(restaurant, APPLETON_TOWER, airspace, SearchBudget.standard(), 1000));
+    }
+
+    @Test
+    public void testLatticeHeuristicCutsExpansionsWithoutLengtheningThePath() {
+        A_Star euclidean = new A_Star(restaurant, APPLETON_TOWER, airspace, SearchBudget.standard(), Heuristic.euclidean(APPLETON_TOWER));
+        A_Star lattice = new A_Star(restaurant, APPLETON_TOWER, airspace, SearchBudget.standard(), Heuristic.lattice(APPLETON_TOWER));
+        int euclideanMoves = euclidean.calculatePath().size();
+        List<Position> path = lattice.calculatePath();
+        assertLegalPath(path);
+        assertTrue(path.size() <= euclideanMoves, "A tighter admissible heuristic should not lengthen the path.");
+        assertTrue(lattice.getExpandedNodes() < euclidean.getExpandedNodes(), "The lattice heuristic should expand fewer nodes.");
+    }
+
+    @Test
+    public void testLandmarksNeverOverestimateAndKeepThePathShortest() {
+        LandmarkHeuristic landmarks = new LandmarkHeuristic(APPLETON_TOWER, airspace);
+        assertEquals(5, landmarks.landmarksInUse(), "Appleton Tower and every corner should give a bound for the tower.");
+
+        // Starts round the tower, behind George Square, Bristo Square and the blocker
+        List<Position> starts = List.of(
+                new Position(-3.190287, 55.946943), new Position(-3.190625, 55.947495),
+                new Position(-3.188557, 55.947061), new Position(-3.188502, 55.946187),
+                new Position(-3.185781, 55.942923), new Position(-3.183158, 55.941760),
+                new Position(-3.190383, 55.943102));
+        for (Position start : starts) {
+            List<Position> shortest = new LifelongPlanningAStar(start, APPLETON_TOWER, airspace).calculatePath();
+            assertFalse(shortest.isEmpty());
+            for (int j = 0; j < shortest.size(); j++) {
+                Position position = shortest.get(j);
+                double movesLeft = (shortest.size() - 1 - j) * Constants.MOVE_DISTANCE;
+                assertTrue(landmarks.estimate(position.lng(), position.lat()) <= movesLeft + 1e-12,
+                        "The estimate at " + position + " is more than the " + (shortest.size() - 1 - j) + " moves left.");
+            }
+
+            A_Star search = new A_Star(start, APPLETON_TOWER, airspace, SearchBudget.standard(), landmarks);
+            List<Position> path = search.calculatePath();
+            assertLegalPath(path, start, airspace);
+            assertEquals(shortest.size(), path.size(), "A* with landmarks should find the shortest path from " + start);
+            assertEquals(new A_Star(start, APPLETON_TOWER, airspace).calculatePath().size(), path.size());
+            assertEquals(1, search.suboptimalityBound());
+        }
+    }
+
+    @Test
+    public void testLifelongPlannerRepairsAfterZoneChange() {
+        LifelongPlanningAStar planner = new LifelongPlanningAStar(restaurant, APPLETON_TOWER, airspace);
+        assertEquals(new A_Star(restaurant, APPLETON_TOWER, airspace).calculatePath().size(), planner.calculatePath().size());
+
+        // A kiosk goes up across the route past the blocker
+        List<nameData.NamedRegion> zones = new ArrayList<>(airspace.getNoFlyZones());
+        zones.add(rectangle("Kiosk", -3.1930, 55.9436, -3.1928, 55.9442));
+        Airspace withKiosk = Airspace.compile(airspace.getCentralArea(), zones);
+
+        List<Position> path = planner.replan(withKiosk, SearchBudget.standard());
+        assertLegalPath(path, withKiosk);
+        A_Star fresh = new A_Star(restaurant, APPLETON_TOWER, withKiosk);
+        assertEquals(fresh.calculatePath().size(), path.size(), "The repaired path should be as short as a new search.");
+        assertTrue(planner.getExpandedNodes() * 4 < fresh.getExpandedNodes(), "Repairing should cost much less than a new search.");
+    }
+
+    @Test
+    public void testMovesDoNotJumpOverNarrowZones() {
+        // A bollard thinner than a move, between two lattice points on the straight line to the tower
+        Position start = new Position(APPLETON_TOWER.lng() - 20 * Constants.MOVE_DISTANCE, APPLETON_TOWER.lat());
+        double bollardLng = start.lng() + 10.5 * Constants.MOVE_DISTANCE;
+        Airspace bollard = Airspace.compile(airspace.getCentralArea(), List.of(
+                rectangle("Bollard", bollardLng - 0.00002, APPLETON_TOWER.lat() - 0.00002, bollardLng + 0.00002, APPLETON_TOWER.lat() + 0.00002)));
+
+        assertLegalPath(new A_Star(start, APPLETON_TOWER, bollard).calculatePath(), start, bollard);
+        assertLegalPath(new JumpPointSearch(start, APPLETON_TOWER, bollard).calculatePath(), start, bollard);
+        assertLegalPath(new BidirectionalAStar(start, APPLETON_TOWER, bollard).calculatePath(), start, bollard);
+    }
+
+    @Test
+    public void testSearchStopsAtExpansionLimit() {
+        SearchBudget budget = new SearchBudget(100, null);
+        SearchAbortedException e = assertThrows(SearchAbortedException.class,
+                () -> new A_Star(restaurant, APPLETON_TOWER, airspace, budget).calculatePath());
+        assertEquals(SearchAbortedException.Reason.EXPANSION_LIMIT, e.getReason());
+    }
+
+    @Test
+    public void testCancelledSearchStops() {
+        SearchBudget budget = SearchBudget.standard();
+        budget.cancel();
+        SearchAbortedException e = assertThrows(SearchAbortedException.class,
+                () -> new BidirectionalAStar(restaurant, APPLETON_TOWER, airspace, budget).calculatePath());
+        assertEquals(SearchAbortedException.Reason.CANCELLED, e.getReason());
+    }
+
+    @Test
+    public void testTargetBeyondMaxDroneMovesGivesNoPath() {
+        Position farAway = new Position(restaurant.lng() - (Constants.MAX_DRONE_MOVES + 10) * Constants.MOVE_DISTANCE, restaurant.lat());
+        A_Star search = new A_Star(restaurant, farAway, airspace);
+        assertTrue(search.calculatePath().isEmpty(), "No path should be longer than MAX_DRONE_MOVES.");
+        assertTrue(search.getExpandedNodes() <= 1, "The search should give up without exploring.");
+    }
+
+    @Test
+    public void testDistanceFieldPathIsLegal() {
+        DistanceField field = DistanceField.build(airspace, APPLETON_TOWER);
+        List<Position> path = field.pathFrom(restaurant);
+        assertLegalPath(path);
+
+        int aStarMoves = new A_Star(restaurant, APPLETON_TOWER, airspace).calculatePath().size();
+        assertTrue(path.size() <= aStarMoves * 1.2, "Distance field path should be close to the A* length.");
+    }
+
+    @Test
+    public void testDistanceFieldOutsideItsAreaGivesNoPath() {
+        DistanceField field = DistanceField.build(airspace, APPLETON_TOWER);
+        assertTrue(field.pathFrom(new Position(-3.5, 55.9)).isEmpty(), "A start outside the field should give no path.");
+    }
+
+    // Starts at the restaurant, ends near the tower, every move is one legal step
+    private void assertLegalPath(List<Position> path) {
+        assertLegalPath(path, airspace);
+    }
+
+    private void assertLegalPath(List<Position> path, Airspace airspace) {
+        assertLegalPath(path, restaurant, airspace);
+    }
+
+    private void assertLegalPath(List<Position> path, Position start, Airspace airspace) {
+        assertFalse(path.isEmpty(), "Path should not be empty.");
+        assertEquals(start, path.get(0), "Path should start at the restaurant.");
+        Position last = path.get(path.size() - 1);
+        assertTrue(distance(last, APPLETON_TOWER) <= Constants.CLOSE_DISTANCE, "Path should end close to Appleton Tower.");
+
+        boolean inCentralArea = false;
+        for (int i = 1; i < path.size(); i++) {
+            Position from = path.get(i - 1);
+            Position to = path.get(i);
+            assertEquals(Constants.MOVE_DISTANCE, distance(from, to), 1e-12, "Every move should be exactly one step.");
+            assertFalse(airspace.isNoFly(to.lng(), to.lat()), "Path should not enter a no-fly zone.");
+            for (nameData.NamedRegion zone : airspace.getNoFlyZones()) {
+                assertFalse(clipsRegion(from, to, zone), "No move should cut across " + zone.name + ".");
+            }
+            inCentralArea |= airspace.isInCentralArea(from.lng(), from.lat());
+            if (inCentralArea) {
+                assertTrue(airspace.isInCentralArea(to.lng(), to.lat()), "Path should not leave the central area.");
+            }
+        }
+    }
+
+    // Brute force over every edge: does the move cross or touch it
+    private static boolean clipsRegion(Position from, Position to, nameData.NamedRegion region) {
+        Position[] vertices = region.getCoordinates();
+        for (int i = 0; i < vertices.length; i++) {
+            Position a = vertices[i];
+            Position b = vertices[(i + 1) % vertices.length];
+            double d1 = cross(a, b, from), d2 = cross(a, b, to), d3 = cross(from, to, a), d4 = cross(from, to, b);
+            if (d1 * d2 <= 0 && d3 * d4 <= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static double cross(Position p, Position q, Position r) {
+        return (q.lng() - p.lng()) * (r.lat() - p.lat()) - (q.lat() - p.lat()) * (r.lng() - p.lng());
+    }
+
+    private static double distance(Position a, Position b) {
+        return Math.hypot(a.lng() - b.lng(), a.lat() - b.lat());
+    }
+
+    private static nameData.NamedRegion rectangle(String name, double minLng, double minLat, double maxLng, double maxLat) {
+        return new nameData.NamedRegion(name, new Position[]{
+                new Position(minLng, minLat),
+                new Position(maxLng, minLat),
+                new Position(maxLng, maxLat),
+                new Position(minLng, maxLat)
+        });
+    }
+}